@@ -0,0 +1,153 @@
+package ftree.benchmarks;
+
+import ftree.QuickSort;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AdversarialSortBenchmarks
+ * JMH benchmarks of QuickSort.sort, medianSort and introSort on the inputs that hurt a quicksort:
+ * many equal keys and inputs built to defeat the median of three
+ * The sizes are small because medianSort is quadratic on the killer input (so is building it)
+ * Usage: java -jar benchmarks/target/benchmarks.jar AdversarialSortBenchmarks -p order=median3Killer
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdversarialSortBenchmarks {
+
+    @Param({"10000", "50000"})
+    public int size;
+
+    /**
+     * allEqual: a single value, fewDistinct: only 4 different values, organPipe: 0 1 2 .. n/2 .. 2 1 0,
+     * median3Killer: the input that makes medianSort pick the second smallest key as the pivot every time
+     */
+    @Param({"allEqual", "fewDistinct", "organPipe", "median3Killer"})
+    public String order;
+
+    private Integer[] input;
+    private Integer[] work;
+
+    @Setup
+    public void setUp() {
+        int[] values;
+        switch (order) {
+            case "allEqual":
+                values = new int[size];
+                break;
+            case "fewDistinct":
+                values = KeyDistribution.keys("random", size, 4, 1);
+                break;
+            case "organPipe":
+                values = new int[size];
+                for (int i = 0; i < size; i++) values[i] = Math.min(i, size - 1 - i);
+                break;
+            case "median3Killer":
+                values = median3Killer(size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+        input = new Integer[size];
+        for (int i = 0; i < size; i++) input[i] = values[i];
+        work = new Integer[size];
+    }
+
+    @Benchmark
+    public Integer[] sort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer[] medianSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.medianSort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer[] introSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.introSort(work);
+        return work;
+    }
+
+    /**
+     * Builds the worst input of medianSort with McIlroy's adversary ("A Killer Adversary for Quicksort"):
+     * medianSort runs on keys that have no value yet, every comparison fixes as few values as it can
+     * and the values decided this way are an input that medianSort (being deterministic) sorts the same way
+     * @param n number of keys
+     * @return the input, a permutation of 0..n-1
+     */
+    static int[] median3Killer(int n) {
+        Adversary adversary = new Adversary(n);
+        QuickSort.medianSort(adversary.keys);
+        return adversary.values;
+    }
+
+    /**
+     * Keys whose values are decided during the sort
+     * A key is "gas" (undecided, bigger than every decided key) until it's compared with another gas key,
+     * then one of them is frozen with the next smallest value, preferring the last pivot candidate
+     */
+    private static final class Adversary {
+        final int[] values;
+        final Key[] keys;
+        final int gas;
+        int frozen;
+        int candidate;
+
+        Adversary(int n) {
+            values = new int[n];
+            keys = new Key[n];
+            gas = n - 1;
+            for (int i = 0; i < n; i++) {
+                values[i] = gas;
+                keys[i] = new Key(this, i);
+            }
+        }
+
+        int compare(int x, int y) {
+            if (values[x] == gas && values[y] == gas) {
+                if (x == candidate) values[x] = frozen++;
+                else values[y] = frozen++;
+            }
+            if (values[x] == gas) candidate = x;
+            else if (values[y] == gas) candidate = y;
+            return Integer.compare(values[x], values[y]);
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final Adversary adversary;
+        final int index;
+
+        Key(Adversary adversary, int index) {
+            this.adversary = adversary;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return adversary.compare(index, other.index);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ftree.benchmarks;
+
+import ftree.BPlusFTree;
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BPlusBenchmarks
+ * JMH benchmarks of range scans of width keys (values(min,max)) on the FTree against the BPlusFTree,
+ * both with the keys 0..size-1 inserted in random order, and of get on both
+ * The heap per entry of both trees is printed when they are built
+ * Usage: java -jar benchmarks/target/benchmarks.jar BPlusBenchmarks -p width=100
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPlusBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+
+    @Param({"100", "10000"})
+    public int width;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private BPlusFTree<Integer, Integer> bplus;
+    private Integer[] starts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int[] order = KeyDistribution.inserts("random", size, 1);
+        long before = Heap.used();
+        tree = new FTree<>(degree);
+        for (int k : order) tree.put(k, k);
+        Heap.print("FTree", before, size);
+
+        before = Heap.used();
+        bplus = new BPlusFTree<>(degree);
+        for (int k : order) bplus.put(k, k);
+        Heap.print("BPlusFTree", before, size);
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, Math.max(1, size - width), 2);
+        starts = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) starts[i] = keys[i];
+    }
+
+    private Integer nextStart() {
+        Integer s = starts[next];
+        next = (next + 1) & (QUERIES - 1);
+        return s;
+    }
+
+    @Benchmark
+    public void ftreeValues(Blackhole bh) {
+        Integer s = nextStart();
+        for (Integer v : tree.values(s, s + width - 1)) bh.consume(v);
+    }
+
+    @Benchmark
+    public void bplusValues(Blackhole bh) {
+        Integer s = nextStart();
+        for (Integer v : bplus.values(s, s + width - 1)) bh.consume(v);
+    }
+
+    @Benchmark
+    public Integer ftreeGet() {
+        return tree.get(nextStart());
+    }
+
+    @Benchmark
+    public Integer bplusGet() {
+        return bplus.get(nextStart());
+    }
+}
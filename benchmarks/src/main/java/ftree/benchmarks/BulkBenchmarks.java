@@ -0,0 +1,107 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BulkBenchmarks
+ * JMH benchmarks of the FTree operations on many keys at once against doing them one key at a time
+ * buildSorted and putSorted load size sorted keys into a new FTree (one operation is the whole load),
+ * getAll/putAll and getEach/putEach take a batch of clustered keys (close to each other) of a FTree with size keys
+ * Usage: java -jar benchmarks/target/benchmarks.jar BulkBenchmarks -p batch=256,4096
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmarks {
+
+    private static final int BATCHES = 256; // Power of two so the next batch is a mask away
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"4096"})
+    public int batch;
+
+    private Integer[] sorted;
+    private FTree<Integer, Integer> tree;
+    private Integer[][] batches;
+    private Integer[] results;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sorted = new Integer[size];
+        for (int i = 0; i < size; i++) sorted[i] = i;
+        tree = FTree.build(degree, sorted, sorted);
+
+        Random rand = new Random(11);
+        batches = new Integer[BATCHES][batch];
+        for (Integer[] keys : batches) {
+            int base = rand.nextInt(Math.max(1, size - 4 * batch));
+            for (int i = 0; i < batch; i++) keys[i] = base + rand.nextInt(4 * batch);
+        }
+        results = new Integer[batch];
+    }
+
+    private Integer[] nextBatch() {
+        Integer[] keys = batches[next];
+        next = (next + 1) & (BATCHES - 1);
+        return keys;
+    }
+
+    @Benchmark
+    public FTree<Integer, Integer> buildSorted() {
+        return FTree.build(degree, sorted, sorted);
+    }
+
+    @Benchmark
+    public FTree<Integer, Integer> putSorted() {
+        FTree<Integer, Integer> loaded = new FTree<>(degree);
+        for (Integer k : sorted) loaded.put(k, k);
+        return loaded;
+    }
+
+    @Benchmark
+    public Integer[] getAll() {
+        tree.getAll(nextBatch(), results);
+        return results;
+    }
+
+    @Benchmark
+    public void getEach(Blackhole bh) {
+        for (Integer k : nextBatch()) bh.consume(tree.get(k));
+    }
+
+    @Benchmark
+    public void putAll() {
+        Integer[] keys = nextBatch();
+        tree.putAll(keys, keys); // The keys are already there, so the FTree doesn't grow
+    }
+
+    @Benchmark
+    public void putEach() {
+        for (Integer k : nextBatch()) tree.put(k, k);
+    }
+}
@@ -0,0 +1,102 @@
+package ftree.benchmarks;
+
+import ftree.BytesFTree;
+import ftree.FTree;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BytesKeyBenchmarks
+ * JMH benchmarks of get on an FTree with String keys against the BytesFTree (prefix compressed) on URL-like keys,
+ * both with size URLs inserted in random order and the same value everywhere (so only the keys and the nodes count)
+ * The length of the URLs and the heap per entry of both trees are printed when they are built
+ * Usage: java -jar benchmarks/target/benchmarks.jar BytesKeyBenchmarks -p degree=16,64
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesKeyBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<String, Integer> strings;
+    private BytesFTree<Integer> compressed;
+    private String[] stringKeys; // Other objects than the keys in the tree, like a real lookup
+    private byte[][] byteKeys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Integer value = 1;
+        int[] order = KeyDistribution.inserts("random", size, 1);
+        long length = 0;
+        long before = Heap.used();
+        strings = new FTree<>(degree);
+        for (int i : order) {
+            String url = url(i);
+            length += url.length();
+            strings.put(url, value);
+        }
+        System.out.printf("%nURL length: %.1f bytes/key%n", (double) length / size);
+        Heap.print("FTree<String, V>", before, size);
+
+        before = Heap.used();
+        compressed = new BytesFTree<>(degree);
+        for (int i : order) compressed.put(url(i).getBytes(StandardCharsets.UTF_8), value);
+        Heap.print("BytesFTree<V>", before, size);
+
+        int[] queries = KeyDistribution.keys("random", QUERIES, size, 2);
+        stringKeys = new String[QUERIES];
+        byteKeys = new byte[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            stringKeys[i] = url(queries[i]);
+            byteKeys[i] = stringKeys[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param i number of the URL
+     * @return a URL made from i, URLs with close numbers share long prefixes like the pages of a crawl
+     */
+    static String url(int i) {
+        return "https://www.site" + (i % 97) + ".example.com/catalog/" + (i / 97 % 400) + "/products/item-" + i + ".html";
+    }
+
+    private int nextQuery() {
+        int i = next;
+        next = (next + 1) & (QUERIES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Integer stringGet() {
+        return strings.get(stringKeys[nextQuery()]);
+    }
+
+    @Benchmark
+    public Integer bytesGet() {
+        return compressed.get(byteKeys[nextQuery()]);
+    }
+}
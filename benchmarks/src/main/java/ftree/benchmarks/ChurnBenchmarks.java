@@ -0,0 +1,70 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ChurnBenchmarks
+ * JMH benchmark of an FTree that gets new keys and loses old ones at the same rate (half put and half delete of
+ * random keys in 0..2*size-1), so its size stays around size
+ * The heap and the height are printed after every iteration, they should stay flat
+ * Usage: java -jar benchmarks/target/benchmarks.jar ChurnBenchmarks -p degree=2,16
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmarks {
+
+    private static final int QUERIES = 1 << 20; // Power of two so the next query is a mask away
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private Integer[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(k, k);
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, 2 * size, 13);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+    }
+
+    @TearDown(Level.Iteration)
+    public void printHeap() {
+        System.out.printf("%nheap %d bytes, %d keys, height %d%n", Heap.used(), tree.size(), tree.height());
+    }
+
+    @Benchmark
+    public void churn() {
+        Integer k = queries[next];
+        if ((next & 1) == 0) tree.put(k, k);
+        else tree.delete(k);
+        next = (next + 1) & (QUERIES - 1);
+    }
+}
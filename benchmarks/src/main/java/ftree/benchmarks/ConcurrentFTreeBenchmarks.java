@@ -0,0 +1,78 @@
+package ftree.benchmarks;
+
+import ftree.ConcurrentFTree;
+import ftree.FTree;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ConcurrentFTreeBenchmarks
+ * JMH throughput of a read/write mix (95% get, 5% put of random keys) on one tree shared by all the threads,
+ * the ConcurrentFTree against an FTree behind a single lock
+ * The throughput of the ConcurrentFTree should grow with the number of threads (-t) up to the number of cores
+ * Usage: java -jar benchmarks/target/benchmarks.jar ConcurrentFTreeBenchmarks -t 8
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentFTreeBenchmarks {
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private ConcurrentFTree<Integer, Integer> concurrent;
+    private FTree<Integer, Integer> locked;
+
+    @Setup
+    public void setUp() {
+        concurrent = new ConcurrentFTree<>(degree);
+        locked = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) {
+            concurrent.put(k, k);
+            locked.put(k, k);
+        }
+    }
+
+    @Benchmark
+    public Integer concurrent() {
+        int k = ThreadLocalRandom.current().nextInt(20 * size);
+        if (k % 20 == 0) {
+            concurrent.put(k / 20, k);
+            return null;
+        }
+        return concurrent.get(k / 20);
+    }
+
+    @Benchmark
+    public Integer synchronizedFTree() {
+        int k = ThreadLocalRandom.current().nextInt(20 * size);
+        synchronized (locked) {
+            if (k % 20 == 0) {
+                locked.put(k / 20, k);
+                return null;
+            }
+            return locked.get(k / 20);
+        }
+    }
+}
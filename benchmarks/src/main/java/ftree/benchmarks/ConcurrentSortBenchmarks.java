@@ -0,0 +1,77 @@
+package ftree.benchmarks;
+
+import ftree.QuickSort;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ConcurrentSortBenchmarks
+ * JMH throughput of many threads sorting their own arrays at the same time, with the static QuickSort.sort
+ * (cutoff 16), one shared Sorter with the calibrated cutoff and one shared Sorter with the cutoff of -p cutoff
+ * The throughput should grow with the number of threads (-t) up to the number of cores
+ * Usage: java -jar benchmarks/target/benchmarks.jar ConcurrentSortBenchmarks -t 8
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentSortBenchmarks {
+
+    private static final QuickSort.Sorter CALIBRATED = QuickSort.Sorter.calibrated();
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"32"})
+    public int cutoff;
+
+    private Integer[] input;
+    private Integer[] work;
+    private QuickSort.Sorter sorter;
+
+    @Setup
+    public void setUp() {
+        int[] values = KeyDistribution.inserts("random", size, 1);
+        input = new Integer[size];
+        for (int i = 0; i < size; i++) input[i] = values[i];
+        work = new Integer[size];
+        sorter = new QuickSort.Sorter(cutoff);
+    }
+
+    @Benchmark
+    public Integer[] staticSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer[] calibratedSorter() {
+        System.arraycopy(input, 0, work, 0, size);
+        CALIBRATED.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer[] sorter() {
+        System.arraycopy(input, 0, work, 0, size);
+        sorter.sort(work);
+        return work;
+    }
+}
@@ -0,0 +1,101 @@
+package ftree.benchmarks;
+
+import ftree.Codec;
+import ftree.DiskFTree;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DiskBenchmarks
+ * JMH benchmarks of a DiskFTree in a temporary file with the keys 0..size-1 inserted in random order:
+ * get and put (of keys that are already there, so the file doesn't grow) of random keys, and the time to open the file
+ * The size of the file and the hits and misses of the page cache are printed at the end
+ * Usage: java -jar benchmarks/target/benchmarks.jar DiskBenchmarks -p cacheBytes=1048576
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"16777216"}) // The default of the DiskFTree
+    public long cacheBytes;
+
+    private Path file;
+    private DiskFTree<Integer, Integer> tree;
+    private Integer[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("ftree-benchmark", ".db");
+        try (DiskFTree<Integer, Integer> created = new DiskFTree<>(file, degree, Codec.INT, Codec.INT, cacheBytes)) {
+            for (int k : KeyDistribution.inserts("random", size, 1)) created.put(k, k);
+        }
+        System.out.printf("%nfile: %.1f bytes/entry%n", (double) Files.size(file) / size);
+        tree = new DiskFTree<>(file, degree, Codec.INT, Codec.INT, cacheBytes);
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, size, 2);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.printf("%ncache: %d hits, %d misses, %d evictions (%d pages)%n", tree.cacheHits(), tree.cacheMisses(),
+                          tree.cacheEvictions(), tree.cacheCapacity());
+        tree.close();
+        Files.delete(file);
+    }
+
+    private Integer nextQuery() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return k;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return tree.get(nextQuery());
+    }
+
+    @Benchmark
+    public void put() {
+        Integer k = nextQuery();
+        tree.put(k, k);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int reopen() throws IOException {
+        tree.close();
+        tree = new DiskFTree<>(file, degree, Codec.INT, Codec.INT, cacheBytes);
+        return tree.size();
+    }
+}
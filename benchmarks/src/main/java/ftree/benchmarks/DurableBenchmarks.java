@@ -0,0 +1,148 @@
+package ftree.benchmarks;
+
+import ftree.Codec;
+import ftree.DurableFTree;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DurableBenchmarks
+ * JMH benchmarks of a DurableFTree in a temporary directory shared by all the threads
+ * put writes random keys in 0..size-1 with an fsync every syncEvery records, with more threads (-t) and syncEvery=1
+ * every put still waits for its fsync but the threads that wait at the same time share them (group commit)
+ * recover opens a directory whose log has size records (replaying all of them) and checkpoint writes the FTree
+ * of size keys to a new checkpoint
+ * (syncEvery doesn't change them)
+ * Usage: java -jar benchmarks/target/benchmarks.jar DurableBenchmarks.put -p syncEvery=1 -t 4
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurableBenchmarks {
+
+    @Param({"1", "64", "1024"})
+    public int syncEvery;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"100000"})
+    public int size;
+
+    private Path dir;
+    private DurableFTree<Integer, Integer> tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ftree-wal");
+        tree = new DurableFTree<>(dir, degree, Codec.INT, Codec.INT, syncEvery, DurableFTree.DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        tree.close();
+        deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public void put() {
+        int k = ThreadLocalRandom.current().nextInt(size);
+        tree.put(k, k);
+    }
+
+    /**
+     * Directory with a log of size records and no checkpoint, recover opens it again and again
+     */
+    @State(Scope.Thread)
+    public static class Logged {
+        private Path dir;
+
+        @Setup
+        public void setUp(DurableBenchmarks benchmark) throws IOException {
+            dir = Files.createTempDirectory("ftree-wal");
+            try (DurableFTree<Integer, Integer> filled = open(dir, benchmark.degree)) {
+                for (int k : KeyDistribution.inserts("random", benchmark.size, 1)) filled.put(k, k);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Open DurableFTree with size keys, checkpoint writes it again and again
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        private Path dir;
+        private DurableFTree<Integer, Integer> tree;
+
+        @Setup
+        public void setUp(DurableBenchmarks benchmark) throws IOException {
+            dir = Files.createTempDirectory("ftree-wal");
+            tree = open(dir, benchmark.degree);
+            for (int k : KeyDistribution.inserts("random", benchmark.size, 1)) tree.put(k, k);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            tree.close();
+            deleteDirectory(dir);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recover(Logged logged) throws IOException {
+        try (DurableFTree<Integer, Integer> reopened = open(logged.dir, degree)) {
+            return reopened.size();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void checkpoint(Filled filled) throws IOException {
+        filled.tree.checkpoint();
+    }
+
+    /**
+     * @return the DurableFTree in dir with one fsync at close and no background checkpoints
+     */
+    private static DurableFTree<Integer, Integer> open(Path dir, int degree) throws IOException {
+        return new DurableFTree<>(dir, degree, Codec.INT, Codec.INT, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Deletes a directory and the files in it
+     * @param dir directory to delete
+     */
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,143 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * FTreeBenchmarks
+ * JMH benchmarks of the FTree operations for several degrees and key distributions
+ * The FTree has the even keys 0, 2, ..., 2*(size-1) inserted in random order and every operation takes the next key
+ * of a sequence drawn from the distribution (get, rank and range hit a key, floor and ceiling fall between two keys)
+ * put fills a second FTree with size keys of the distribution and starts a new one when it's done,
+ * count is size(min,max) between two keys of the sequence and cursor seeks a key and reads the values after it
+ * Usage: java -jar benchmarks/target/benchmarks.jar FTreeBenchmarks -p degree=16 -p distribution=zipfian
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FTreeBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+    private static final int RANGE_KEYS = 100;
+
+    @Param({"2", "3", "16", "64", "256"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"sequential", "random", "zipfian"})
+    public String distribution;
+
+    private FTree<Integer, Integer> tree;
+    private Integer[] hits; // Keys in the tree (boxed before so the boxing is not measured)
+    private Integer[] between; // Keys between two keys of the tree
+    private int[] ranks;
+    private int next;
+    private FTree<Integer, Integer>.Cursor cursor;
+
+    private FTree<Integer, Integer> filling;
+    private Integer[] inserts;
+    private int nextInsert;
+
+    @Setup
+    public void setUp() {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(2 * k, k);
+
+        int[] keys = KeyDistribution.keys(distribution, QUERIES, size, 2);
+        hits = new Integer[QUERIES];
+        between = new Integer[QUERIES];
+        ranks = keys;
+        for (int i = 0; i < QUERIES; i++) {
+            hits[i] = 2 * keys[i];
+            between[i] = 2 * keys[i] + 1;
+        }
+
+        int[] order = KeyDistribution.inserts(distribution, size, 3);
+        inserts = new Integer[size];
+        for (int i = 0; i < size; i++) inserts[i] = order[i];
+        filling = new FTree<>(degree);
+        cursor = tree.cursor();
+    }
+
+    private int nextQuery() {
+        int i = next;
+        next = (next + 1) & (QUERIES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return tree.get(hits[nextQuery()]);
+    }
+
+    @Benchmark
+    public void put() {
+        if (nextInsert == size) { // The tree is full, starts again with an empty one
+            filling = new FTree<>(degree);
+            nextInsert = 0;
+        }
+        Integer k = inserts[nextInsert++];
+        filling.put(k, k);
+    }
+
+    @Benchmark
+    public int rank() {
+        return tree.rank(hits[nextQuery()]);
+    }
+
+    @Benchmark
+    public Integer select() {
+        return tree.select(ranks[nextQuery()]);
+    }
+
+    @Benchmark
+    public Integer floor() {
+        return tree.floor(between[nextQuery()]);
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        return tree.ceiling(between[nextQuery()]);
+    }
+
+    @Benchmark
+    public void range(Blackhole bh) {
+        Integer min = hits[nextQuery()];
+        for (Integer k : tree.keys(min, min + 2 * (RANGE_KEYS - 1))) bh.consume(k);
+    }
+
+    @Benchmark
+    public int count() {
+        Integer a = hits[nextQuery()];
+        Integer b = hits[nextQuery()];
+        return a < b ? tree.size(a, b) : tree.size(b, a);
+    }
+
+    @Benchmark
+    public void cursor(Blackhole bh) {
+        cursor.seek(hits[nextQuery()]);
+        for (int i = 0; i < RANGE_KEYS && cursor.isValid(); i++) {
+            bh.consume(cursor.value());
+            cursor.next();
+        }
+    }
+}
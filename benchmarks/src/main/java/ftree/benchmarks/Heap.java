@@ -0,0 +1,33 @@
+package ftree.benchmarks;
+
+/**
+ * Heap
+ * Heap in use, for the benchmarks that print how many bytes every entry of a tree takes
+ * (JMH measures allocations with -prof gc but not what a tree keeps alive)
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+final class Heap {
+
+    private Heap() {
+    }
+
+    /**
+     * @return the bytes of heap in use after asking for a garbage collection
+     */
+    static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Prints the heap per entry taken since before
+     * @param name what was built
+     * @param before heap in use before it was built
+     * @param entries number of entries in it
+     */
+    static void print(String name, long before, int entries) {
+        System.out.printf("%n%s: %.1f bytes/entry%n", name, (double) (used() - before) / entries);
+    }
+}
@@ -0,0 +1,95 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HotKeyCacheBenchmarks
+ * JMH benchmarks of FTree.get with the hot key cache of a given size (0 is no cache) in front of it
+ * zipfian looks up keys of a zipfian distribution, scan mixes them one to one with a sequential scan
+ * of every key (each looked up once, which shouldn't push the hot keys out) and random is uniform
+ * The hit rate of the cache is printed at the end of every run
+ * Usage: java -jar benchmarks/target/benchmarks.jar HotKeyCacheBenchmarks -p workload=zipfian,scan
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotKeyCacheBenchmarks {
+
+    private static final int QUERIES = 1 << 20; // Power of two so the next query is a mask away
+
+    @Param({"0", "1024", "16384"})
+    public int cacheSize;
+
+    @Param({"zipfian", "scan", "random"})
+    public String workload;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private Integer[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(k, k);
+        tree.setHotKeyCache(cacheSize);
+
+        int[] keys;
+        if (workload.equals("scan")) {
+            int[] hot = KeyDistribution.keys("zipfian", QUERIES / 2, size, 2);
+            keys = new int[QUERIES];
+            for (int i = 0; i < QUERIES / 2; i++) {
+                keys[2 * i] = hot[i];
+                keys[2 * i + 1] = i % size;
+            }
+        } else {
+            keys = KeyDistribution.keys(workload, QUERIES, size, 2);
+        }
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+    }
+
+    @TearDown
+    public void tearDown() {
+        long hits = tree.hotKeyHits();
+        long lookups = hits + tree.hotKeyMisses();
+        if (lookups > 0) System.out.printf("%nhot key cache hit rate: %.1f%% of %d lookups%n", 100.0 * hits / lookups, lookups);
+    }
+
+    @Benchmark
+    public Integer get() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return tree.get(k);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return tree.contains(k);
+    }
+}
@@ -0,0 +1,112 @@
+package ftree.benchmarks;
+
+import java.util.Random;
+
+/**
+ * KeyDistribution
+ * Sequences of keys used by the benchmarks
+ * sequential: 0, 1, 2, ... (wrapping around at the bound)
+ * random: uniform, or a shuffle of 0..bound-1 when every key is needed once
+ * zipfian: a few keys very often and most keys rarely (theta 0.99 like YCSB), the hot keys are spread over the
+ * whole range with a hash so they are not all in the same leaf
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public final class KeyDistribution {
+
+    private static final double THETA = 0.99;
+
+    private KeyDistribution() {
+    }
+
+    /**
+     * @param distribution sequential, random or zipfian
+     * @param count number of keys
+     * @param bound keys are in 0..bound-1
+     * @param seed seed of the random numbers (the same seed gives the same keys)
+     * @return the keys
+     */
+    public static int[] keys(String distribution, int count, int bound, long seed) {
+        Random rand = new Random(seed);
+        int[] keys = new int[count];
+        switch (distribution) {
+            case "sequential":
+                for (int i = 0; i < count; i++) keys[i] = i % bound;
+                break;
+            case "random":
+                for (int i = 0; i < count; i++) keys[i] = rand.nextInt(bound);
+                break;
+            case "zipfian":
+                Zipfian zipfian = new Zipfian(bound);
+                for (int i = 0; i < count; i++) keys[i] = scramble(zipfian.next(rand), bound);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        return keys;
+    }
+
+    /**
+     * Keys to insert in a tree: for random a shuffle of 0..count-1 (every key once), for the others the same as keys
+     * @param distribution sequential, random or zipfian
+     * @param count number of keys
+     * @param seed seed of the random numbers
+     * @return the keys
+     */
+    public static int[] inserts(String distribution, int count, long seed) {
+        if (!distribution.equals("random")) return keys(distribution, count, count, seed);
+        int[] keys = keys("sequential", count, count, seed);
+        Random rand = new Random(seed);
+        for (int i = count - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+        return keys;
+    }
+
+    /**
+     * Spreads the ranks of the zipfian distribution over the range (rank 0 is not key 0)
+     * @param rank rank drawn from the distribution
+     * @param bound keys are in 0..bound-1
+     * @return the key of the rank
+     */
+    private static int scramble(long rank, int bound) {
+        long h = rank * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) Math.floorMod(h, (long) bound);
+    }
+
+    /**
+     * Zipfian generator from Gray et al. "Quickly generating billion-record synthetic databases" (the one YCSB uses)
+     */
+    private static final class Zipfian {
+        final long n;
+        final double zetan;
+        final double alpha;
+        final double eta;
+
+        Zipfian(long n) {
+            this.n = n;
+            double zeta2 = zeta(2);
+            zetan = zeta(n);
+            alpha = 1.0 / (1.0 - THETA);
+            eta = (1 - Math.pow(2.0 / n, 1 - THETA)) / (1 - zeta2 / zetan);
+        }
+
+        private static double zeta(long n) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) sum += 1 / Math.pow(i, THETA);
+            return sum;
+        }
+
+        long next(Random rand) {
+            double u = rand.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1) return 0;
+            if (uz < 1 + Math.pow(0.5, THETA)) return 1;
+            return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+        }
+    }
+}
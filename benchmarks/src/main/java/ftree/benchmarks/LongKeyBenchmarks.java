@@ -0,0 +1,87 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import ftree.LongFTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LongKeyBenchmarks
+ * JMH benchmarks of get on an FTree with boxed Long keys against the LongFTree, both with the keys 0..size-1
+ * inserted in random order and the same value everywhere (so only the keys and the nodes count)
+ * The heap per entry of both trees is printed when they are built
+ * Usage: java -jar benchmarks/target/benchmarks.jar LongKeyBenchmarks -p degree=16,64
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongKeyBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Long, Integer> boxed;
+    private LongFTree<Integer> primitive;
+    private long[] keys;
+    private Long[] boxedKeys; // Other objects than the keys in the tree, like a real lookup
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Integer value = 1;
+        int[] order = KeyDistribution.inserts("random", size, 1);
+        long before = Heap.used();
+        boxed = new FTree<>(degree);
+        for (int k : order) boxed.put((long) k, value);
+        Heap.print("FTree<Long, V>", before, size);
+
+        before = Heap.used();
+        primitive = new LongFTree<>(degree);
+        for (int k : order) primitive.put(k, value);
+        Heap.print("LongFTree<V>", before, size);
+
+        int[] queries = KeyDistribution.keys("random", QUERIES, size, 2);
+        keys = new long[QUERIES];
+        boxedKeys = new Long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            keys[i] = queries[i];
+            boxedKeys[i] = Long.valueOf(queries[i]);
+        }
+    }
+
+    private int nextQuery() {
+        int i = next;
+        next = (next + 1) & (QUERIES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Integer boxedGet() {
+        return boxed.get(boxedKeys[nextQuery()]);
+    }
+
+    @Benchmark
+    public Integer longGet() {
+        return primitive.get(keys[nextQuery()]);
+    }
+}
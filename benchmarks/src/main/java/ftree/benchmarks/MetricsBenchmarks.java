@@ -0,0 +1,80 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MetricsBenchmarks
+ * JMH benchmarks of get, put and rank of an FTree with its metrics off and on
+ * With metrics=false the times should be the same as an FTree that never had metrics (the only cost is a null check),
+ * with metrics=true they show what timing every operation costs
+ * Usage: java -jar benchmarks/target/benchmarks.jar MetricsBenchmarks
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmarks {
+
+    private static final int QUERIES = 1 << 20; // Power of two so the next query is a mask away
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private Integer[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(k, k);
+        tree.setMetrics(metrics);
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, size, 2);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+    }
+
+    @Benchmark
+    public Integer get() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return tree.get(k);
+    }
+
+    @Benchmark
+    public void put() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        tree.put(k, k); // Replaces the value of a key that is already there, so the FTree doesn't grow
+    }
+
+    @Benchmark
+    public int rank() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return tree.rank(k);
+    }
+}
@@ -0,0 +1,100 @@
+package ftree.benchmarks;
+
+import ftree.QuickSort;
+import ftree.TopK;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PercentileBenchmarks
+ * JMH benchmarks of p50/p90/p99/p999 of latency-like samples (exponential, in nanoseconds)
+ * with one QuickSort.multiSelect, one select per percentile and a full sort,
+ * and of the top k samples with TopK.OfLong and with a PriorityQueue used as a min heap
+ * Usage: java -jar benchmarks/target/benchmarks.jar PercentileBenchmarks -p size=1000000
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PercentileBenchmarks {
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"100"})
+    public int k;
+
+    private long[] samples;
+    private long[] work;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(1);
+        samples = new long[size];
+        for (int i = 0; i < size; i++) samples[i] = (long) (-Math.log(1 - rand.nextDouble()) * 200_000);
+        work = new long[size];
+    }
+
+    @Benchmark
+    public long[] multiSelect() {
+        System.arraycopy(samples, 0, work, 0, size);
+        return QuickSort.percentiles(work, PERCENTILES);
+    }
+
+    @Benchmark
+    public long[] selectEach() {
+        System.arraycopy(samples, 0, work, 0, size);
+        long[] result = new long[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) result[i] = QuickSort.percentiles(work, PERCENTILES[i])[0];
+        return result;
+    }
+
+    @Benchmark
+    public long[] sort() {
+        System.arraycopy(samples, 0, work, 0, size);
+        QuickSort.sort(work);
+        long[] result = new long[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            result[i] = work[Math.max(0, (int) Math.ceil(PERCENTILES[i] * size) - 1)];
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long[] topK() {
+        TopK.OfLong top = new TopK.OfLong(k);
+        for (long x : samples) top.offer(x);
+        return top.top();
+    }
+
+    @Benchmark
+    public PriorityQueue<Long> topKHeap() {
+        PriorityQueue<Long> heap = new PriorityQueue<>(k + 1);
+        for (long x : samples) {
+            if (heap.size() < k) heap.add(x);
+            else if (x > heap.peek()) {
+                heap.poll();
+                heap.add(x);
+            }
+        }
+        return heap;
+    }
+}
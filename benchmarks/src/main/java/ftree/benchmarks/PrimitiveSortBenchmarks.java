@@ -0,0 +1,76 @@
+package ftree.benchmarks;
+
+import ftree.QuickSort;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PrimitiveSortBenchmarks
+ * JMH benchmarks of the QuickSort overloads for long[] (one thread and fork-join) against Arrays.sort and Arrays.parallelSort
+ * Every invocation copies the random input first (the sorts work in place)
+ * Usage: java -jar benchmarks/target/benchmarks.jar PrimitiveSortBenchmarks -p size=100000000 -jvmArgs -Xmx4g
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveSortBenchmarks {
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private long[] input;
+    private long[] work;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rand = new SplittableRandom(1);
+        input = new long[size];
+        for (int i = 0; i < size; i++) input[i] = rand.nextLong();
+        work = new long[size];
+    }
+
+    @Benchmark
+    public long[] quickSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public long[] quickSortParallel() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.parallelSort(work);
+        return work;
+    }
+
+    @Benchmark
+    public long[] arraysSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        Arrays.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public long[] arraysParallelSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        Arrays.parallelSort(work);
+        return work;
+    }
+}
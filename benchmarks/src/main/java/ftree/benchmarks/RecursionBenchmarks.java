@@ -0,0 +1,108 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RecursionBenchmarks
+ * JMH benchmarks of get and put of the FTree (loops) against RecursiveFTree (the same code with recursive calls)
+ * Both trees have the same random keys, get looks up keys that are there and put fills an empty tree with
+ * size random keys and starts a new one when it's done
+ * Usage: java -jar benchmarks/target/benchmarks.jar RecursionBenchmarks -p degree=2,16
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecursionBenchmarks {
+
+    private static final int QUERIES = 1 << 16; // Power of two so the next query is a mask away
+
+    @Param({"2", "3", "16", "64"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> iterative;
+    private RecursiveFTree<Integer, Integer> recursive;
+    private Integer[] queries;
+    private int next;
+
+    private FTree<Integer, Integer> iterativeFilling;
+    private RecursiveFTree<Integer, Integer> recursiveFilling;
+    private Integer[] inserts;
+    private int nextIterative;
+    private int nextRecursive;
+
+    @Setup
+    public void setUp() {
+        iterative = new FTree<>(degree);
+        recursive = new RecursiveFTree<>(degree);
+        int[] order = KeyDistribution.inserts("random", size, 1);
+        inserts = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            inserts[i] = order[i];
+            iterative.put(inserts[i], inserts[i]);
+            recursive.put(inserts[i], inserts[i]);
+        }
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, size, 2);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+
+        iterativeFilling = new FTree<>(degree);
+        recursiveFilling = new RecursiveFTree<>(degree);
+    }
+
+    private Integer nextQuery() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return k;
+    }
+
+    @Benchmark
+    public Integer getIterative() {
+        return iterative.get(nextQuery());
+    }
+
+    @Benchmark
+    public Integer getRecursive() {
+        return recursive.get(nextQuery());
+    }
+
+    @Benchmark
+    public void putIterative() {
+        if (nextIterative == size) { // The tree is full, starts again with an empty one
+            iterativeFilling = new FTree<>(degree);
+            nextIterative = 0;
+        }
+        Integer k = inserts[nextIterative++];
+        iterativeFilling.put(k, k);
+    }
+
+    @Benchmark
+    public void putRecursive() {
+        if (nextRecursive == size) { // The tree is full, starts again with an empty one
+            recursiveFilling = new RecursiveFTree<>(degree);
+            nextRecursive = 0;
+        }
+        Integer k = inserts[nextRecursive++];
+        recursiveFilling.put(k, k);
+    }
+}
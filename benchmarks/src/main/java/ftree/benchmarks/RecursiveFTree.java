@@ -0,0 +1,224 @@
+package ftree.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * RecursiveFTree
+ * Copy of the FTree get and put as they were before they became loops (the same nodes, offsets, split and
+ * childResized, but every level is a recursive call), kept only as the baseline of RecursionBenchmarks
+ * It has no delete, snapshots, metrics or hot keys, so it must not be used for anything else
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+class RecursiveFTree<Key extends Comparable<Key>, Value>
+{
+    private int g;
+    private Node root;
+    private int TWOxG;
+    private int TWOxG_1;
+    private int g_1;
+
+    /**
+     * Constructor for the RecursiveFTree
+     * @param degree the degree of the RecursiveFTree (minimum 2)
+     */
+    RecursiveFTree(int degree)
+    {
+        assert(degree >= 2);
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        root = new Node(true);
+    }
+
+    /**
+     * Node class for the RecursiveFTree (the layout of the FTree nodes)
+     */
+    private class Node {
+        Key[] keys;
+        Value[] values;
+        Node[] children;
+        int[] offsets;
+        int count;
+        int size;
+        int height;
+
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf){
+            keys = (Key[]) new Comparable[TWOxG_1];
+            values = (Value[]) new Object[TWOxG_1];
+            if (!leaf){
+                children = (Node[]) new RecursiveFTree.Node[TWOxG];
+                offsets = new int[TWOxG];
+            }
+        }
+
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == TWOxG_1;
+        }
+
+        boolean isEmpty(){
+            return count == 0;
+        }
+    }
+
+    /**
+     * @return the number of keys in the RecursiveFTree
+     */
+    int size()
+    {
+        return root.size;
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the RecursiveFTree
+     */
+    Value get(Key k)
+    {
+        return get(root, k);
+    }
+
+        private Value get(Node n, Key k){
+            if (n.isEmpty()) return null;
+
+            int i = binarySearch(n, k);
+
+            if (i < n.count && k.compareTo(n.keys[i]) == 0){ // Checks if the key is in this node
+                return n.values[i];
+            } else if (n.isLeaf()){
+                return null;
+            } else { // If the key is not in this node, we go to the child where it could be
+                return get(n.children[i], k);
+            }
+        }
+
+    /**
+     * Inserts a key-value pair into the RecursiveFTree
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    void put(Key k, Value v)
+    {
+        if (root.isFull()){
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.size = root.size;
+            newRoot.height = root.height + 1;
+            split(newRoot, 0);
+            root = newRoot;
+        }
+        put(root, k, v);
+    }
+
+        /**
+         * @return true if the key was added, false if it was already there and only the value changed
+         */
+        private boolean put(Node node, Key key, Value value){
+            int i = binarySearch(node, key);
+
+            // Checks if the key is already in the node
+            if (i < node.count && key.compareTo(node.keys[i]) == 0){
+                node.values[i] = value;
+                return false;
+            }
+            if (node.isLeaf()){
+                System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+                System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+                node.keys[i] = key;
+                node.values[i] = value;
+                node.count++;
+                node.size++;
+                return true;
+            }
+            if (node.children[i].isFull()){
+                split(node, i);
+                // Checks if the key is in the new node after the split
+                int cmp = key.compareTo(node.keys[i]);
+                if (cmp == 0){
+                    node.values[i] = value;
+                    return false;
+                }
+                else if (cmp > 0) i++;
+            }
+            boolean added = put(node.children[i], key, value);
+            if (added) childResized(node, i, 1);
+            return added;
+        }
+
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            Node newNode = new Node(splitNode.isLeaf()); // Node to be created where the second half of the splitNode will be
+
+            // Moves the middle entry of the splitNode to the parent
+            int moved = parent.count - index;
+            System.arraycopy(parent.keys, index, parent.keys, index + 1, moved);
+            System.arraycopy(parent.values, index, parent.values, index + 1, moved);
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            System.arraycopy(parent.offsets, index + 1, parent.offsets, index + 2, moved);
+            parent.keys[index] = splitNode.keys[g_1];
+            parent.values[index] = splitNode.values[g_1];
+            parent.children[index + 1] = newNode;
+            parent.count++;
+
+            // Moves the second half of the splitNode to the newNode
+            System.arraycopy(splitNode.keys, g, newNode.keys, 0, g_1);
+            System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+            if (!splitNode.isLeaf()){
+                System.arraycopy(splitNode.children, g, newNode.children, 0, g);
+                Arrays.fill(splitNode.children, g, TWOxG, null);
+            }
+            Arrays.fill(splitNode.keys, g_1, TWOxG_1, null);
+            Arrays.fill(splitNode.values, g_1, TWOxG_1, null);
+            splitNode.count = g_1;
+            newNode.count = g_1;
+            newNode.height = splitNode.height;
+
+            if (splitNode.isLeaf()){
+                splitNode.size = g_1;
+                newNode.size = g_1;
+            } else {
+                updateSize(splitNode);
+                updateSize(newNode);
+            }
+            parent.offsets[index + 1] = parent.offsets[index] + splitNode.size + 1;
+        }
+
+        private void updateSize(Node n){
+            int size = n.count;
+            if (!n.isLeaf()){
+                for (int i = 0; i <= n.count; i++){
+                    n.offsets[i] = size - n.count + i;
+                    size += n.children[i].size;
+                }
+            }
+            n.size = size;
+        }
+
+        private void childResized(Node n, int i, int delta){
+            n.size += delta;
+            for (int j = i + 1; j <= n.count; j++) n.offsets[j] += delta;
+        }
+
+        private int binarySearch(Node n, Key k){
+            int low = 0;
+            int high = n.count - 1;
+
+            while (low <= high){
+                int mid = (high + low) / 2;
+                int cmp = k.compareTo(n.keys[mid]);
+
+                if (cmp == 0) return mid;
+                else if (cmp < 0) high = mid - 1;
+                else low = mid + 1;
+            }
+            return low;
+        }
+}
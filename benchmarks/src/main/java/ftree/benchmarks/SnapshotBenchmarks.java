@@ -0,0 +1,107 @@
+package ftree.benchmarks;
+
+import ftree.FTree;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SnapshotBenchmarks
+ * JMH benchmark of put on an FTree that takes a snapshot every snapshotEvery puts (0 is never)
+ * With reader=true another thread keeps scanning a tenth of the latest snapshot and ranking its middle key,
+ * which shows what copying the nodes shared with the snapshots costs the writer
+ * Usage: java -jar benchmarks/target/benchmarks.jar SnapshotBenchmarks -p snapshotEvery=0,10000
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmarks {
+
+    private static final int QUERIES = 1 << 20; // Power of two so the next query is a mask away
+
+    @Param({"0", "10000"})
+    public int snapshotEvery;
+
+    @Param({"false", "true"})
+    public boolean reader;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private Integer[] queries;
+    private int next;
+    private int sinceSnapshot;
+
+    private final AtomicReference<FTree<Integer, Integer>> latest = new AtomicReference<>();
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder sink = new LongAdder(); // Results of the reader so the JIT can't remove its work
+    private Thread scanner;
+
+    @Setup
+    public void setUp() {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(k, k);
+
+        int[] keys = KeyDistribution.keys("random", QUERIES, size, 17);
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = keys[i];
+
+        latest.set(tree.snapshot());
+        if (reader) {
+            int n = size;
+            scanner = new Thread(() -> {
+                while (!stop.get()) {
+                    FTree<Integer, Integer> snapshot = latest.get();
+                    long sum = 0;
+                    for (Integer k : snapshot.keys(0, n / 10)) sum += k;
+                    sink.add(snapshot.rank(n / 2) + sum);
+                    scans.increment();
+                }
+            });
+            scanner.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        stop.set(true);
+        if (scanner != null) {
+            scanner.join();
+            System.out.printf("%nreader: %d scans (sink %d)%n", scans.sum(), sink.sum());
+        }
+    }
+
+    @Benchmark
+    public void put() {
+        Integer k = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        tree.put(k, k);
+        if (snapshotEvery > 0 && ++sinceSnapshot == snapshotEvery) {
+            latest.set(tree.snapshot());
+            sinceSnapshot = 0;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ftree.benchmarks;
+
+import ftree.QuickSort;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SortBenchmarks
+ * JMH benchmarks of QuickSort.sort, medianSort and quickSelect for several array sizes and orders
+ * Every invocation copies the input first (the sorts work in place), the copy is a small part of the time
+ * Usage: java -jar benchmarks/target/benchmarks.jar SortBenchmarks -p size=100000
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * random: shuffled, sorted and reversed: in order, nearlySorted: in order with 1% of the elements swapped,
+     * fewDistinct: only 16 different values
+     */
+    @Param({"random", "sorted", "reversed", "nearlySorted", "fewDistinct"})
+    public String order;
+
+    private Integer[] input;
+    private Integer[] work;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(1);
+        int[] values;
+        switch (order) {
+            case "random":
+                values = KeyDistribution.inserts("random", size, 1);
+                break;
+            case "sorted":
+                values = KeyDistribution.keys("sequential", size, size, 1);
+                break;
+            case "reversed":
+                values = new int[size];
+                for (int i = 0; i < size; i++) values[i] = size - 1 - i;
+                break;
+            case "nearlySorted":
+                values = KeyDistribution.keys("sequential", size, size, 1);
+                for (int s = 0; s < size / 100; s++) {
+                    int i = rand.nextInt(size), j = rand.nextInt(size);
+                    int t = values[i];
+                    values[i] = values[j];
+                    values[j] = t;
+                }
+                break;
+            case "fewDistinct":
+                values = KeyDistribution.keys("random", size, 16, 1);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+        input = new Integer[size];
+        for (int i = 0; i < size; i++) input[i] = values[i];
+        work = new Integer[size];
+    }
+
+    @Benchmark
+    public Integer[] sort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer[] medianSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        QuickSort.medianSort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Integer quickSelect() {
+        System.arraycopy(input, 0, work, 0, size);
+        return QuickSort.quickSelect(work, size / 2);
+    }
+}
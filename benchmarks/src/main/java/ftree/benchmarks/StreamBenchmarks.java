@@ -0,0 +1,87 @@
+package ftree.benchmarks;
+
+import ftree.Codec;
+import ftree.FTree;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StreamBenchmarks
+ * JMH benchmarks of saving an FTree of size keys to a file with writeTo and loading it back with readFrom
+ * (one operation is the whole FTree), with and without delta keys
+ * The size of the file and the heap of a loaded FTree are printed per entry
+ * Usage: java -jar benchmarks/target/benchmarks.jar StreamBenchmarks -p delta=true
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmarks {
+
+    @Param({"false", "true"})
+    public boolean delta;
+
+    @Param({"16"})
+    public int degree;
+
+    @Param({"1000000"})
+    public int size;
+
+    private FTree<Integer, Integer> tree;
+    private Path file;
+    private FTree<Integer, Integer> loaded;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = new FTree<>(degree);
+        for (int k : KeyDistribution.inserts("random", size, 1)) tree.put(k, k);
+        file = Files.createTempFile("ftree-benchmark", ".snapshot");
+        writeTo();
+        System.out.printf("%nfile: %.1f bytes/entry%n", (double) Files.size(file) / size);
+
+        long before = Heap.used();
+        loaded = readFrom(); // In a field so the garbage collection can't take it before it's measured
+        Heap.print("loaded FTree", before, size);
+        loaded = null;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long writeTo() throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            tree.writeTo(out, Codec.INT, Codec.INT, delta);
+            return out.position();
+        }
+    }
+
+    @Benchmark
+    public FTree<Integer, Integer> readFrom() throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            return FTree.readFrom(in, degree, Codec.INT, Codec.INT);
+        }
+    }
+}
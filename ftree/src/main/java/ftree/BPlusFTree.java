@@ -0,0 +1,653 @@
+package ftree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * BPlusFTree
+ * FTree stored as a B+tree: the values are only in the leaves and every leaf is linked to the one before and after it,
+ * the internal nodes only keep separator keys (a copy of the smallest key of the child on their right) and no values
+ * A range scan goes down the tree once and then walks the arrays of the leaves one after the other,
+ * instead of going back up through the internal nodes between keys like the FTree cursor
+ * The internal nodes have no values, so they can hold more keys for the memory of a leaf: they have their own degree,
+ * twice the degree of the leaves unless it's given, and the wider internal levels make the tree shorter
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class BPlusFTree<Key extends Comparable<Key>, Value>
+{
+    private int g;
+    private Node root;
+    private Node head; // The leftmost leaf (splits keep the left half in place, so it never changes)
+    private int TWOxG_1;
+    private int g_1;
+    private int internalG; // Degree of the internal nodes
+    private int TWOxInternalG;
+    private int TWOxInternalG_1;
+    private int internalG_1;
+    private Node[] putPath; // Internal nodes of the descent of put, reused by every put
+    private int[] putIndex; // Child taken in each node of putPath
+
+    /**
+     * Constructor for the BPlusFTree, the internal nodes get twice the degree of the leaves
+     * @param degree the degree of the leaves of the BPlusFTree (minimum 2), a leaf holds between g-1 and 2g-1 keys
+     */
+    public BPlusFTree(int degree)
+    {
+        this(degree, 2 * degree);
+    }
+
+    /**
+     * Constructor for the BPlusFTree
+     * @param degree the degree of the leaves of the BPlusFTree (minimum 2), a leaf holds between g-1 and 2g-1 keys
+     * @param internalDegree the degree of the internal nodes (minimum 2), an internal node has between g and 2g children
+     */
+    public BPlusFTree(int degree, int internalDegree)
+    {
+        assert(degree >= 2 && internalDegree >= 2);
+        this.g = degree;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        internalG = internalDegree;
+        TWOxInternalG = 2 * internalG;
+        TWOxInternalG_1 = 2 * internalG - 1;
+        internalG_1 = internalG - 1;
+        root = new Node(true);
+        head = root;
+        putPath = newPath(8);
+        putIndex = new int[8];
+    }
+
+    /**
+     * Node class for the BPlusFTree
+     * Leaves have keys, values and the links to their neighbours, internal nodes have keys, children and offsets
+     * (the keys between children i and i + 1 are >= keys[i] on the right side and < keys[i] on the left side,
+     * offsets[i] is the number of entries of the subtree before the child i)
+     */
+    private class Node {
+        Key[] keys;
+        Value[] values;
+        Node[] children;
+        int[] offsets;
+        Node previous;
+        Node next;
+        int count;
+        int size; // Number of entries in the leaves of the subtree
+        int height;
+
+        /**
+         * Constructor for the Node
+         * @param leaf true if the node is a leaf (leaves don't need the children array, internal nodes don't need the values)
+         */
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf){
+            if (leaf){
+                keys = (Key[]) new Comparable[TWOxG_1];
+                values = (Value[]) new Object[TWOxG_1];
+            } else {
+                keys = (Key[]) new Comparable[TWOxInternalG_1];
+                children = (Node[]) new BPlusFTree.Node[TWOxInternalG];
+                offsets = new int[TWOxInternalG];
+            }
+            height = 0;
+        }
+
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == keys.length;
+        }
+
+        boolean isEmpty(){
+            return count == 0;
+        }
+    }
+
+    /**
+     * @return the number of keys in the BPlusFTree
+     */
+    public int size()
+    {
+        return root.size;
+    }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return the number of keys in the BPlusFTree between min and max (inclusive)
+     */
+    public int size(Key min, Key max){
+        if (min.compareTo(max) > 0) return 0;
+
+        // Goes down while min and max are in the same child, the entries before that child count for both so they cancel out
+        Node node = root;
+        while (!node.isLeaf()){
+            int i = childIndex(node, min);
+            if (i != childIndex(node, max)) break;
+            node = node.children[i];
+        }
+        return rank(node, max, true) - rank(node, min, false);
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the BPlusFTree
+     */
+    public int height()
+    {
+        return root.height;
+    }
+
+    /**
+     * Checks if the key is present in the BPlusFTree (null values count as present)
+     * @param k key to be checked
+     * @return true if the key is in the BPlusFTree, false otherwise
+     */
+    public boolean contains(Key k)
+    {
+        Node leaf = leaf(k);
+        int i = binarySearch(leaf, k);
+        return i < leaf.count && k.compareTo(leaf.keys[i]) == 0;
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the BPlusFTree
+     */
+    public Value get(Key k)
+    {
+        Node leaf = leaf(k);
+        int i = binarySearch(leaf, k);
+        if (i < leaf.count && k.compareTo(leaf.keys[i]) == 0) return leaf.values[i];
+        return null;
+    }
+
+        /**
+         * @return the leaf where the key is or would be
+         */
+        private Node leaf(Key k){
+            Node n = root;
+            while (!n.isLeaf()){
+                n = n.children[childIndex(n, k)];
+            }
+            return n;
+        }
+
+    /**
+     * Inserts a key-value pair into the BPlusFTree (overwrites the value if the key is already there)
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    public void put(Key k, Value v)
+    {
+        if (root.isFull())
+        {
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.size = root.size;
+            newRoot.height = root.height + 1;
+            split(newRoot, 0);
+            root = newRoot;
+        }
+        if (putPath.length < root.height){
+            putPath = newPath(2 * root.height);
+            putIndex = new int[putPath.length];
+        }
+
+        // Goes down splitting the full children before entering them, so the leaf always has room for the key
+        Node node = root;
+        int depth = 0;
+        while (!node.isLeaf()){
+            int i = childIndex(node, k);
+            if (node.children[i].isFull()){
+                split(node, i);
+                if (k.compareTo(node.keys[i]) >= 0) i++; // Keys equal to the separator are in the new node
+            }
+            putPath[depth] = node;
+            putIndex[depth] = i;
+            depth++;
+            node = node.children[i];
+        }
+
+        int i = binarySearch(node, k);
+        if (i < node.count && k.compareTo(node.keys[i]) == 0){ // An overwrite touches no counter
+            node.values[i] = v;
+            clearPath(depth);
+            return;
+        }
+        System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+        System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+        node.keys[i] = k;
+        node.values[i] = v;
+        node.count++;
+        node.size++;
+
+        // The key is new, so every node on the path has one more entry
+        for (int d = depth - 1; d >= 0; d--) childResized(putPath[d], putIndex[d], 1);
+        clearPath(depth);
+    }
+
+        /**
+         * @param length length of the path
+         * @return an empty path for put
+         */
+        @SuppressWarnings("unchecked")
+        private Node[] newPath(int length){
+            return (Node[]) new BPlusFTree.Node[length];
+        }
+
+        /**
+         * Drops the references of the path of put
+         * @param depth number of nodes in the path
+         */
+        private void clearPath(int depth){
+            Arrays.fill(putPath, 0, depth, null);
+        }
+
+        /**
+         * Updates the size and the offsets of an internal node after the size of one of its children changed
+         * @param n Node to be updated
+         * @param i index of the child that changed
+         * @param delta number of entries added to the child
+         */
+        private void childResized(Node n, int i, int delta){
+            n.size += delta;
+            for (int j = i + 1; j <= n.count; j++) n.offsets[j] += delta;
+        }
+
+        /**
+         * Splits a node in two, a leaf keeps g entries and copies the first key of the new leaf to the parent,
+         * an internal node moves its middle key to the parent like in the FTree (the sizes come from its offsets)
+         * @param parent Node that is the parent of the node to be split
+         * @param index index of the node to be split
+         */
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            Node newNode = new Node(splitNode.isLeaf()); // Node to be created where the second half of the splitNode will be
+            Key separator;
+
+            if (splitNode.isLeaf()){
+                System.arraycopy(splitNode.keys, g, newNode.keys, 0, g_1);
+                System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+                Arrays.fill(splitNode.keys, g, TWOxG_1, null); // Clears the moved references so they can be collected
+                Arrays.fill(splitNode.values, g, TWOxG_1, null);
+                splitNode.count = g;
+                newNode.count = g_1;
+                splitNode.size = g;
+                newNode.size = g_1;
+                separator = newNode.keys[0];
+
+                // Links the newNode between the splitNode and its next leaf
+                newNode.next = splitNode.next;
+                if (newNode.next != null) newNode.next.previous = newNode;
+                newNode.previous = splitNode;
+                splitNode.next = newNode;
+            } else {
+                separator = splitNode.keys[internalG_1];
+                System.arraycopy(splitNode.keys, internalG, newNode.keys, 0, internalG_1);
+                System.arraycopy(splitNode.children, internalG, newNode.children, 0, internalG);
+                int before = splitNode.offsets[internalG]; // Entries of the children that stay
+                for (int i = 0; i < internalG; i++) newNode.offsets[i] = splitNode.offsets[internalG + i] - before;
+                Arrays.fill(splitNode.keys, internalG_1, TWOxInternalG_1, null);
+                Arrays.fill(splitNode.children, internalG, TWOxInternalG, null);
+                splitNode.count = internalG_1;
+                newNode.count = internalG_1;
+                newNode.size = splitNode.size - before;
+                splitNode.size = before;
+            }
+            newNode.height = splitNode.height;
+
+            // Puts the separator and the newNode in the parent
+            int moved = parent.count - index;
+            System.arraycopy(parent.keys, index, parent.keys, index + 1, moved);
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            System.arraycopy(parent.offsets, index + 1, parent.offsets, index + 2, moved); // The entries before them didn't change
+            parent.keys[index] = separator;
+            parent.children[index + 1] = newNode;
+            parent.offsets[index + 1] = parent.offsets[index] + splitNode.size;
+            parent.count++;
+        }
+
+    /**
+     * Iterates through all the keys in the BPlusFTree in order
+     * @return an iterable of all the keys in the BPlusFTree
+     */
+    public Iterable<Key> keys(){
+        return () -> new CursorIterator<Key>(null, null){
+            Key current(Node leaf, int i){ return leaf.keys[i]; }
+        };
+    }
+
+    /**
+     * Iterates through all the values in the BPlusFTree in order
+     * @return an iterable of all the values in the BPlusFTree
+     */
+    public Iterable<Value> values()
+    {
+        return () -> new CursorIterator<Value>(null, null){
+            Value current(Node leaf, int i){ return leaf.values[i]; }
+        };
+    }
+
+    /**
+     * Iterates through all the keys in the BPlusFTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the keys in the BPlusFTree between min and max (inclusive)
+     */
+    public Iterable<Key> keys(Key min, Key max)
+    {
+        return () -> new CursorIterator<Key>(min, max){
+            Key current(Node leaf, int i){ return leaf.keys[i]; }
+        };
+    }
+
+    /**
+     * Iterates through all the values in the BPlusFTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the values in the BPlusFTree between min and max (inclusive)
+     */
+    public Iterable<Value> values(Key min, Key max)
+    {
+        return () -> new CursorIterator<Value>(min, max){
+            Value current(Node leaf, int i){ return leaf.values[i]; }
+        };
+    }
+
+        /**
+         * Iterator over the entries of the BPlusFTree that walks the arrays of the leaves
+         * max is compared once per leaf with its last key, only the leaf where the range ends needs a search for it
+         * @param <T> type of the iterated elements (keys or values)
+         */
+        private abstract class CursorIterator<T> implements Iterator<T> {
+            final Key max;
+            Node leaf; // Leaf of the next entry (null at the end)
+            int index;
+            int end; // Index after the last entry of the leaf that is in the range
+
+            /**
+             * @param min key of the first entry (null to start at the smallest key)
+             * @param max key of the last entry (null to go until the biggest key)
+             */
+            CursorIterator(Key min, Key max){
+                this.max = max;
+                if (min == null){
+                    enter(head.isEmpty() ? null : head, 0);
+                } else {
+                    Node n = leaf(min);
+                    int i = binarySearch(n, min);
+                    if (i == n.count) enter(n.next, 0);
+                    else enter(n, i);
+                }
+            }
+
+            /**
+             * @return the element of the entry at index i of the leaf
+             */
+            abstract T current(Node leaf, int i);
+
+            public boolean hasNext(){
+                return index < end;
+            }
+
+            public T next(){
+                if (index >= end) throw new NoSuchElementException();
+                T t = current(leaf, index++);
+                if (index == leaf.count) enter(leaf.next, 0);
+                return t;
+            }
+
+                private void enter(Node n, int i){
+                    leaf = n;
+                    index = i;
+                    if (n == null) end = 0;
+                    else if (max == null || n.keys[n.count - 1].compareTo(max) <= 0) end = n.count;
+                    else end = childIndex(n, max); // The keys less than or equal to max
+                }
+        }
+
+    /**
+     * Opens a cursor positioned at the smallest key of the BPlusFTree
+     * The cursor must not be used after the BPlusFTree is modified (open a new one or call first/seek again)
+     * @return a new cursor
+     */
+    public Cursor cursor(){
+        Cursor c = new Cursor();
+        c.first();
+        return c;
+    }
+
+    /**
+     * Cursor that walks the BPlusFTree in order, it only keeps a leaf and an index in it
+     * so next and previous are an increment and a jump to the linked leaf at the end of each one
+     */
+    public class Cursor {
+        private Node leaf; // Leaf of the current entry (null when the cursor is out of the BPlusFTree)
+        private int index;
+
+        private Cursor(){
+        }
+
+        /**
+         * @return true if the cursor is on an entry, false if it went past the first or the last key
+         */
+        public boolean isValid(){
+            return leaf != null;
+        }
+
+        /**
+         * @return the key where the cursor is
+         */
+        public Key key(){
+            if (leaf == null) throw new NoSuchElementException();
+            return leaf.keys[index];
+        }
+
+        /**
+         * @return the value of the key where the cursor is
+         */
+        public Value value(){
+            if (leaf == null) throw new NoSuchElementException();
+            return leaf.values[index];
+        }
+
+        /**
+         * Moves the cursor to the smallest key of the BPlusFTree
+         */
+        public void first(){
+            leaf = head.isEmpty() ? null : head;
+            index = 0;
+        }
+
+        /**
+         * Moves the cursor to the biggest key of the BPlusFTree
+         */
+        public void last(){
+            Node n = root;
+            while (!n.isLeaf()){
+                n = n.children[n.count];
+            }
+            leaf = n.isEmpty() ? null : n;
+            index = n.count - 1;
+        }
+
+        /**
+         * Moves the cursor to the smallest key greater than or equal to k, starting again from the root
+         * @param k key to seek
+         */
+        public void seek(Key k){
+            leaf = leaf(k);
+            index = binarySearch(leaf, k);
+            if (index == leaf.count){ // Every key of the leaf is smaller, the next one starts with a bigger key
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        /**
+         * Moves the cursor to the next key in order
+         */
+        public void next(){
+            if (leaf == null) return;
+            if (++index == leaf.count){
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        /**
+         * Moves the cursor to the previous key in order
+         */
+        public void previous(){
+            if (leaf == null) return;
+            if (--index < 0){
+                leaf = leaf.previous;
+                if (leaf != null) index = leaf.count - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the minimum key in the BPlusFTree or null if it is empty
+     */
+    public Key min()
+    {
+        return head.isEmpty() ? null : head.keys[0];
+    }
+
+    /**
+     * @return the maximum key in the BPlusFTree or null if it is empty
+     */
+    public Key max()
+    {
+        if (root.size == 0) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[n.count]; // Travels to the rightmost node
+        }
+        return n.keys[n.count - 1];
+    }
+
+    /**
+     * Determines the ammount of keys that are less than the given key
+     * @param k key to find the rank of
+     * @return the rank of the key in the BPlusFTree
+     */
+    public int rank(Key k){
+        return rank(root, k, false);
+    }
+
+        /**
+         * Determines the ammount of keys that are less than (or equal to) the given key from a given node
+         * The offsets of the internal nodes give the entries before the child i at once, so each node costs only its binary search
+         * @param node Node to start the rank from
+         * @param k key to find the rank of
+         * @param inclusive true to count the key too if it's in the BPlusFTree
+         * @return the rank of the key in the subtree of the node
+         */
+        private int rank(Node node, Key k, boolean inclusive){
+            int rank = 0;
+            while (!node.isLeaf()){
+                int i = childIndex(node, k);
+                rank += node.offsets[i]; // Every key of the children on the left is smaller
+                node = node.children[i];
+            }
+            int i = binarySearch(node, k);
+            if (inclusive && i < node.count && k.compareTo(node.keys[i]) == 0) i++;
+            return rank + i;
+        }
+
+    /**
+     * Finds the key that is the n-th smallest key in the BPlusFTree
+     * @param n index of the key to find
+     * @return the n-th smallest key in the BPlusFTree or null if n is out of bounds
+     */
+    public Key select(int n){
+        if (n < 0 || n >= root.size) return null;
+        Node node = root;
+        while (!node.isLeaf()){
+            // The child is found with a binary search on the offsets of the node (the last child that starts at or before n)
+            int low = 0;
+            int high = node.count;
+            while (low < high){
+                int mid = (low + high + 1) >>> 1;
+                if (node.offsets[mid] <= n) low = mid;
+                else high = mid - 1;
+            }
+            n -= node.offsets[low];
+            node = node.children[low];
+        }
+        return node.keys[n];
+    }
+
+    /**
+     * Finds the key that is the largest key less than or equal to the given key
+     * @param k key to find the floor of
+     * @return the floor of the key or null if there is none
+     */
+    public Key floor(Key k){
+        Node leaf = leaf(k);
+        int i = binarySearch(leaf, k);
+        if (i < leaf.count && k.compareTo(leaf.keys[i]) == 0) return leaf.keys[i]; // Found the exact key
+        if (i > 0) return leaf.keys[i - 1];
+        Node previous = leaf.previous; // Every key of the leaf is bigger, the previous leaf ends with a smaller key
+        return previous == null ? null : previous.keys[previous.count - 1];
+    }
+
+    /**
+     * Finds the key that is the smallest key greater than or equal to the given key
+     * @param k key to find the ceiling of
+     * @return the ceiling of the key or null if there is none
+     */
+    public Key ceiling(Key k){
+        Node leaf = leaf(k);
+        int i = binarySearch(leaf, k);
+        if (i < leaf.count) return leaf.keys[i];
+        Node next = leaf.next; // Every key of the leaf is smaller, the next leaf starts with a bigger key
+        return next == null ? null : next.keys[0];
+    }
+
+    /**
+     * Binary search for the key in the node
+     * @param n Node to search the key in
+     * @param k key to search
+     * @return the index of the key in the node or the number of keys of the node that are smaller than it
+     */
+    private int binarySearch(Node n, Key k){
+        int low = 0;
+        int high = n.count - 1;
+
+        while (low <= high){
+            int mid = (high + low) >>> 1;
+            int cmp = k.compareTo(n.keys[mid]);
+
+            if (cmp == 0) return mid;
+            else if (cmp < 0) high = mid - 1;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+    /**
+     * @param n internal Node
+     * @param k key to search
+     * @return the index of the child where the key is or would be (the number of separators less than or equal to k)
+     */
+    private int childIndex(Node n, Key k){
+        int low = 0;
+        int high = n.count - 1;
+
+        while (low <= high){
+            int mid = (high + low) >>> 1;
+            if (k.compareTo(n.keys[mid]) < 0) high = mid - 1;
+            else low = mid + 1;
+        }
+        return low;
+    }
+}
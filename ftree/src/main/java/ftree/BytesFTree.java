@@ -0,0 +1,862 @@
+package ftree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * BytesFTree
+ * FTree specialized for byte[] keys (URLs, paths, encoded strings) compared as unsigned bytes in lexicographic order
+ * Every node keeps the prefix shared by all its keys once and the rest of each key (its suffix) one after the other
+ * in a single byte[], so long keys with common beginnings take little memory and binarySearch compares the prefix
+ * once per node and then only the suffixes
+ * The keys are copied in the nodes (changing a byte[] after put doesn't change the BytesFTree) and the keys it
+ * returns are new arrays
+ * With a key length (fixed-width keys like hashes, ids or encoded numbers) every suffix has the same length,
+ * so the nodes don't keep the offsets of the suffixes and key i starts at i times the length of a suffix
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class BytesFTree<Value>
+{
+    private static final byte[] EMPTY = new byte[0];
+
+    private int g;
+    private Node root;
+    private int TWOxG;
+    private int TWOxG_1;
+    private int g_1;
+    private int keyLength; // Length of every key, -1 if the keys can have any length
+    private Node[] putPath = newPath(8); // Nodes put went through, reused by every put so it doesn't allocate
+    private int[] putIndex = new int[8]; // Index of the child taken in each node of the path
+
+    /**
+     * Constructor for the BytesFTree
+     * @param degree the degree of the BytesFTree (minimum 2) which determines the number of children each node can have (g children and g-1 keys)
+     */
+    public BytesFTree(int degree)
+    {
+        this(degree, -1);
+    }
+
+    /**
+     * Constructor for a BytesFTree of fixed-width keys
+     * @param degree the degree of the BytesFTree (minimum 2) which determines the number of children each node can have (g children and g-1 keys)
+     * @param keyLength the length of every key (put rejects the keys of another length), -1 for keys of any length
+     */
+    public BytesFTree(int degree, int keyLength)
+    {
+        assert(degree >= 2);
+        if (keyLength < -1) throw new IllegalArgumentException("The key length can't be negative");
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        this.keyLength = keyLength;
+        root = new Node(true);
+    }
+
+    /**
+     * Node class for the BytesFTree
+     * Same layout as the FTree nodes but key i is prefix followed by the bytes of suffixes between start(i) and start(i + 1)
+     * (offsets[i] with keys of any length, there are no offsets with fixed-width keys)
+     * Internal nodes keep ranks like the offsets of the FTree: ranks[i] is the number of keys of the subtree that come
+     * before the child i, so rank and select find their place in a node with a binary search
+     */
+    private class Node {
+        byte[] prefix; // Never changed after it's set (split shares it between the two halves)
+        byte[] suffixes;
+        int[] offsets;
+        int[] ranks;
+        Value[] values;
+        Node[] children;
+        int count;
+        int size;
+        int height;
+
+        /**
+         * Constructor for the Node
+         * @param leaf true if the node is a leaf (leaves don't need the children array)
+         */
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf){
+            prefix = EMPTY;
+            suffixes = EMPTY;
+            if (keyLength < 0) offsets = new int[TWOxG];
+            values = (Value[]) new Object[TWOxG_1];
+            if (!leaf){
+                children = (Node[]) new BytesFTree.Node[TWOxG];
+                ranks = new int[TWOxG];
+            }
+            height = 0;
+        }
+
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == TWOxG_1;
+        }
+
+        boolean isEmpty(){
+            return count == 0;
+        }
+
+        /**
+         * @param i index of the key
+         * @return a new array with the whole key i
+         */
+        byte[] key(int i){
+            int start = start(i);
+            int length = start(i + 1) - start;
+            byte[] k = Arrays.copyOf(prefix, prefix.length + length);
+            System.arraycopy(suffixes, start, k, prefix.length, length);
+            return k;
+        }
+
+        /**
+         * @param i index of the key (count for the end of the last suffix)
+         * @return the position of the suffix of the key i in suffixes
+         */
+        int start(int i){
+            return offsets == null ? i * (keyLength - prefix.length) : offsets[i];
+        }
+    }
+
+    /**
+     * Compares two keys as unsigned bytes in lexicographic order (a key that is a prefix of another is smaller),
+     * the order of the BytesFTree
+     * @param a first key
+     * @param b second key
+     * @return a negative number if a is smaller, 0 if they are equal and a positive number if a is bigger
+     */
+    public static int compare(byte[] a, byte[] b)
+    {
+        return compare(a, 0, a.length, b, 0, b.length);
+    }
+
+        private static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo){
+            int length = Math.min(aTo - aFrom, bTo - bFrom);
+            for (int i = 0; i < length; i++){
+                int cmp = (a[aFrom + i] & 0xFF) - (b[bFrom + i] & 0xFF);
+                if (cmp != 0) return cmp;
+            }
+            return (aTo - aFrom) - (bTo - bFrom);
+        }
+
+    /**
+     * @return the number of keys in the BytesFTree
+     */
+    public int size()
+    {
+        return root.size;
+    }
+
+        /**
+         * Recomputes the size and the ranks of a node from its children
+         * @param n Node to be updated
+         */
+        private void updateSize(Node n){
+            int size = n.count;
+            if (!n.isLeaf()){
+                for (int i = 0; i <= n.count; i++){
+                    n.ranks[i] = size - n.count + i;
+                    size += n.children[i].size;
+                }
+            }
+            n.size = size;
+        }
+
+        /**
+         * Updates a node after its child i gained or lost keys (the ranks of the children after it move)
+         * @param n parent of the child
+         * @param i index of the child
+         * @param delta number of keys added (negative if removed)
+         */
+        private void childResized(Node n, int i, int delta){
+            n.size += delta;
+            for (int j = i + 1; j <= n.count; j++) n.ranks[j] += delta;
+        }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return the number of keys in the BytesFTree between min and max (inclusive)
+     */
+    public int size(byte[] min, byte[] max){
+        if (compare(min, max) > 0) return 0;
+
+        // Goes down while min and max are in the same child, the keys before that child count for both so they cancel out
+        Node node = root;
+        while (!node.isLeaf()){
+            int i = binarySearch(node, min);
+            if (i >= 0 || i != binarySearch(node, max)) break; // One of them is a key of this node or they part here
+            node = node.children[-i - 1];
+        }
+        return rank(node, max, true) - rank(node, min, false);
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the BytesFTree
+     */
+    public int height()
+    {
+        return root.height;
+    }
+
+    /**
+     * Checks if the key is present in the BytesFTree (null values count as present)
+     * @param k key to be checked
+     * @return true if the key is in the BytesFTree, false otherwise
+     */
+    public boolean contains(byte[] k)
+    {
+        Node n = root;
+        while (true){
+            int i = binarySearch(n, k);
+            if (i >= 0) return true;
+            if (n.isLeaf()) return false;
+            n = n.children[-i - 1];
+        }
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the BytesFTree
+     */
+    public Value get(byte[] k)
+    {
+        Node n = root;
+        while (true){
+            int i = binarySearch(n, k);
+            if (i >= 0) return n.values[i];
+            if (n.isLeaf()) return null;
+            n = n.children[-i - 1]; // If the key is not in this node, we go to the child where it could be
+        }
+    }
+
+    /**
+     * Inserts a key-value pair into the BytesFTree (overwrites the value if the key is already there)
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    public void put(byte[] k, Value v)
+    {
+        if (keyLength >= 0 && k.length != keyLength){
+            throw new IllegalArgumentException("The keys of this BytesFTree have " + keyLength + " bytes, not " + k.length);
+        }
+        if (root.isFull())
+        {
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.size = root.size;
+            newRoot.height = root.height + 1;
+            split(newRoot, 0);
+            root = newRoot;
+        }
+        if (putPath.length <= root.height){
+            putPath = newPath(2 * root.height + 1);
+            putIndex = new int[putPath.length];
+        }
+
+        // Goes down splitting the full children before entering them, so there is always room for the key
+        Node node = root;
+        int depth = 0;
+        while (true){
+            int i = binarySearch(node, k);
+
+            // Checks if the key is already in the node (an overwrite touches no counter)
+            if (i >= 0){
+                node.values[i] = v;
+                clearPath(depth);
+                return;
+            }
+            i = -i - 1;
+            if (node.isLeaf()){
+                insert(node, i, k, v);
+                node.size++;
+                break;
+            }
+            if (node.children[i].isFull()){
+                split(node, i);
+                // Checks if the key is in the new node after the split
+                int cmp = compare(k, node, i);
+                if (cmp == 0){
+                    node.values[i] = v;
+                    clearPath(depth);
+                    return;
+                }
+                else if (cmp > 0) i++;
+            }
+            putPath[depth] = node;
+            putIndex[depth] = i;
+            depth++;
+            node = node.children[i];
+        }
+
+        // The key is new, so every node on the path has one more key (the heights only change when the root splits)
+        for (int d = depth - 1; d >= 0; d--) childResized(putPath[d], putIndex[d], 1);
+        clearPath(depth);
+    }
+
+        /**
+         * @param length length of the path
+         * @return an empty path for put
+         */
+        @SuppressWarnings("unchecked")
+        private Node[] newPath(int length){
+            return (Node[]) new BytesFTree.Node[length];
+        }
+
+        /**
+         * Drops the references of the path of put so it doesn't keep nodes alive
+         * @param depth number of nodes in the path
+         */
+        private void clearPath(int depth){
+            Arrays.fill(putPath, 0, depth, null);
+        }
+
+        /**
+         * Splits a node in two
+         * @param parent Node that is the parent of the node to be split
+         * @param index index of the node to be split
+         */
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            Node newNode = new Node(splitNode.isLeaf()); // Node to be created where the second half of the splitNode will be
+
+            // Moves the middle entry of the splitNode to the parent
+            insert(parent, index, splitNode.key(g_1), splitNode.values[g_1]);
+            int moved = parent.count - index - 1;
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            System.arraycopy(parent.ranks, index + 1, parent.ranks, index + 2, moved); // The keys before them didn't change
+            parent.children[index + 1] = newNode;
+
+            // Moves the second half of the splitNode to the newNode, with the same prefix
+            int start = splitNode.start(g);
+            newNode.prefix = splitNode.prefix;
+            newNode.suffixes = Arrays.copyOfRange(splitNode.suffixes, start, splitNode.start(TWOxG_1));
+            if (newNode.offsets != null){
+                for (int i = 0; i <= g_1; i++) newNode.offsets[i] = splitNode.offsets[g + i] - start;
+            }
+            System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+            if (!splitNode.isLeaf()){
+                System.arraycopy(splitNode.children, g, newNode.children, 0, g);
+                Arrays.fill(splitNode.children, g, TWOxG, null);
+            }
+            Arrays.fill(splitNode.values, g_1, TWOxG_1, null); // Clears the moved references so they can be collected
+            splitNode.count = g_1;
+            newNode.count = g_1;
+            newNode.height = splitNode.height;
+
+            // The keys of each half are closer to each other than before, so they can share a longer prefix
+            growPrefix(splitNode);
+            growPrefix(newNode);
+            if (splitNode.suffixes.length > splitNode.start(g_1)){ // Gives back the bytes of the moved suffixes
+                splitNode.suffixes = Arrays.copyOf(splitNode.suffixes, splitNode.start(g_1));
+            }
+
+            // Updates the sizes of the nodes
+            if(splitNode.isLeaf()){
+                splitNode.size = g_1;
+                newNode.size = g_1;
+            }
+            else{
+                updateSize(splitNode);
+                updateSize(newNode);
+            }
+            parent.ranks[index + 1] = parent.ranks[index] + splitNode.size + 1;
+        }
+
+        /**
+         * Inserts a key and its value at index i of a node (the children are moved by the caller),
+         * cutting the prefix of the node first if the key doesn't start with it
+         */
+        private void insert(Node n, int i, byte[] k, Value v){
+            if (n.count == 0){
+                n.prefix = k.clone(); // A single key is all prefix
+                if (n.offsets != null){
+                    n.offsets[0] = 0;
+                    n.offsets[1] = 0;
+                }
+            } else {
+                int p = 0;
+                int max = Math.min(k.length, n.prefix.length);
+                while (p < max && k[p] == n.prefix[p]) p++;
+                if (p < n.prefix.length) setPrefix(n, Arrays.copyOf(n.prefix, p));
+
+                int p0 = n.prefix.length;
+                int length = k.length - p0;
+                int used = n.start(n.count);
+                if (used + length > n.suffixes.length){
+                    n.suffixes = Arrays.copyOf(n.suffixes, Math.max(used + length, used + (used >> 2) + 16));
+                }
+                int at = n.start(i);
+                System.arraycopy(n.suffixes, at, n.suffixes, at + length, used - at);
+                System.arraycopy(k, p0, n.suffixes, at, length);
+                if (n.offsets != null){
+                    for (int j = n.count; j > i; j--) n.offsets[j + 1] = n.offsets[j] + length;
+                    n.offsets[i + 1] = at + length;
+                }
+            }
+            System.arraycopy(n.values, i, n.values, i + 1, n.count - i);
+            n.values[i] = v;
+            n.count++;
+        }
+
+        /**
+         * Makes the prefix of the node as long as the prefix shared by its first and its last key (so by all its keys)
+         */
+        private void growPrefix(Node n){
+            int first = n.start(0);
+            int last = n.start(n.count - 1);
+            int max = Math.min(n.start(1) - first, n.start(n.count) - last);
+            int p = 0;
+            while (p < max && n.suffixes[first + p] == n.suffixes[last + p]) p++;
+            if (p == 0) return;
+            byte[] prefix = Arrays.copyOf(n.prefix, n.prefix.length + p);
+            System.arraycopy(n.suffixes, first, prefix, n.prefix.length, p);
+            setPrefix(n, prefix);
+        }
+
+        /**
+         * Changes the prefix of a node and rewrites its suffixes
+         * @param n Node to change
+         * @param prefix a shorter prefix of the current one, or a longer prefix shared by all the keys of the node
+         */
+        private void setPrefix(Node n, byte[] prefix){
+            int old = n.prefix.length;
+            int p = prefix.length;
+            byte[] suffixes = new byte[n.start(n.count) + n.count * (old - p)];
+            int start = n.start(0);
+            int at = 0;
+            for (int i = 0; i < n.count; i++){
+                int end = n.start(i + 1); // Read before the offset i + 1 is rewritten (the prefix changes at the end)
+                if (n.offsets != null) n.offsets[i] = at;
+                if (p <= old){ // The cut part of the old prefix goes in front of every suffix
+                    System.arraycopy(n.prefix, p, suffixes, at, old - p);
+                    at += old - p;
+                    System.arraycopy(n.suffixes, start, suffixes, at, end - start);
+                    at += end - start;
+                } else { // The new part of the prefix is removed from every suffix
+                    System.arraycopy(n.suffixes, start + p - old, suffixes, at, end - start - (p - old));
+                    at += end - start - (p - old);
+                }
+                start = end;
+            }
+            if (n.offsets != null) n.offsets[n.count] = at;
+            n.prefix = prefix;
+            n.suffixes = suffixes;
+        }
+
+    /**
+     * @return all the keys in the BytesFTree in order
+     */
+    public byte[][] keys(){
+        byte[][] keys = new byte[size()][];
+        int i = 0;
+        for (Cursor c = cursor(); c.isValid(); c.next()) keys[i++] = c.key();
+        return keys;
+    }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return all the keys in the BytesFTree in order between min and max (inclusive)
+     */
+    public byte[][] keys(byte[] min, byte[] max){
+        byte[][] keys = new byte[size(min, max)][];
+        if (keys.length == 0) return keys;
+        Cursor c = cursor();
+        c.seek(min);
+        for (int i = 0; i < keys.length; i++, c.next()) keys[i] = c.key();
+        return keys;
+    }
+
+    /**
+     * Iterates through all the values in the BytesFTree in order
+     * @return an iterable of all the values in the BytesFTree
+     */
+    public Iterable<Value> values()
+    {
+        return () -> new ValueIterator(null, null);
+    }
+
+    /**
+     * Iterates through all the values in the BytesFTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the values in the BytesFTree between min and max (inclusive)
+     */
+    public Iterable<Value> values(byte[] min, byte[] max)
+    {
+        return () -> new ValueIterator(min, max);
+    }
+
+        /**
+         * Iterator over the values of the BytesFTree that streams them from a cursor
+         * (min and max are null when there is no bound)
+         */
+        private class ValueIterator implements Iterator<Value> {
+            final Cursor cursor = new Cursor();
+            final byte[] max;
+
+            ValueIterator(byte[] min, byte[] max){
+                if (min == null) cursor.first();
+                else cursor.seek(min);
+                this.max = max;
+            }
+
+            public boolean hasNext(){
+                return cursor.isValid() && (max == null || cursor.compareKey(max) <= 0);
+            }
+
+            public Value next(){
+                if (!hasNext()) throw new NoSuchElementException();
+                Value v = cursor.value();
+                cursor.next();
+                return v;
+            }
+        }
+
+    /**
+     * Opens a cursor positioned at the smallest key of the BytesFTree
+     * The cursor must not be used after the BytesFTree is modified (open a new one or call first/seek again)
+     * @return a new cursor
+     */
+    public Cursor cursor(){
+        Cursor c = new Cursor();
+        c.first();
+        return c;
+    }
+
+    /**
+     * Cursor that walks the BytesFTree in order keeping only the path from the root to the current entry
+     * (works exactly like FTree.Cursor but key() returns a copy of the bytes of the key)
+     */
+    public class Cursor {
+        private Node[] path;
+        private int[] index;
+        private int depth; // Position of the current node in the path (-1 when the cursor is out of the BytesFTree)
+
+        private Cursor(){
+            path = newPath(root.height + 1);
+            index = new int[root.height + 1];
+            depth = -1;
+        }
+
+        /**
+         * @return true if the cursor is on an entry, false if it went past the first or the last key
+         */
+        public boolean isValid(){
+            return depth >= 0;
+        }
+
+        /**
+         * @return a new array with the key where the cursor is
+         */
+        public byte[] key(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].key(index[depth]);
+        }
+
+        /**
+         * @return the value of the key where the cursor is
+         */
+        public Value value(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].values[index[depth]];
+        }
+
+        /**
+         * Compares the key where the cursor is with k without copying it
+         * @param k key to compare with
+         * @return a negative number if the key of the cursor is smaller than k, 0 if equal, positive if bigger
+         */
+        public int compareKey(byte[] k){
+            if (depth < 0) throw new NoSuchElementException();
+            return -compare(k, path[depth], index[depth]);
+        }
+
+        /**
+         * Moves the cursor to the smallest key of the BytesFTree
+         */
+        public void first(){
+            reset();
+            descendLeft(root);
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the biggest key of the BytesFTree
+         */
+        public void last(){
+            reset();
+            descendRight(root);
+            backwardUp();
+        }
+
+        /**
+         * Moves the cursor to the smallest key greater than or equal to k, starting again from the root
+         * @param k key to seek
+         */
+        public void seek(byte[] k){
+            reset();
+            Node n = root;
+            while (true){
+                int i = binarySearch(n, k);
+                if (i >= 0){ // Found the exact key
+                    push(n, i);
+                    return;
+                }
+                push(n, -i - 1);
+                if (n.isLeaf()) break;
+                n = n.children[-i - 1];
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the next key in order
+         */
+        public void next(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            index[depth]++;
+            if (!n.isLeaf()){ // The next key is the smallest one of the right child
+                descendLeft(n.children[index[depth]]);
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the previous key in order
+         */
+        public void previous(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            if (n.isLeaf()){
+                index[depth]--;
+            } else { // The previous key is the biggest one of the left child
+                descendRight(n.children[index[depth]]);
+            }
+            backwardUp();
+        }
+
+            private void reset(){
+                if (path.length < root.height + 1){
+                    path = newPath(root.height + 1);
+                    index = new int[root.height + 1];
+                }
+                depth = -1;
+            }
+
+            @SuppressWarnings("unchecked")
+            private Node[] newPath(int length){
+                return (Node[]) new BytesFTree.Node[length];
+            }
+
+            private void push(Node n, int i){
+                depth++;
+                path[depth] = n;
+                index[depth] = i;
+            }
+
+            private void descendLeft(Node n){
+                while (true){
+                    push(n, 0);
+                    if (n.isLeaf()) return;
+                    n = n.children[0];
+                }
+            }
+
+            private void descendRight(Node n){
+                while (true){
+                    if (n.isLeaf()){
+                        push(n, n.count - 1);
+                        return;
+                    }
+                    push(n, n.count);
+                    n = n.children[n.count];
+                }
+            }
+
+            private void forwardUp(){
+                while (depth >= 0 && index[depth] >= path[depth].count){
+                    depth--;
+                }
+            }
+
+            private void backwardUp(){
+                while (depth >= 0 && index[depth] < 0){
+                    depth--;
+                    if (depth >= 0) index[depth]--;
+                }
+            }
+    }
+
+    /**
+     * @return the minimum key in the BytesFTree or null if it is empty
+     */
+    public byte[] min()
+    {
+        if (root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[0]; // Travels to the leftmost node
+        }
+        return n.key(0);
+    }
+
+    /**
+     * @return the maximum key in the BytesFTree or null if it is empty
+     */
+    public byte[] max()
+    {
+        if (root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[n.count]; // Travels to the rightmost node
+        }
+        return n.key(n.count - 1);
+    }
+
+    /**
+     * Determines the ammount of keys that are less than the given key
+     * @param k key to find the rank of
+     * @return the rank of the key in the BytesFTree
+     */
+    public int rank(byte[] k){
+        return rank(root, k, false);
+    }
+
+        /**
+         * Determines the ammount of keys that are less than (or equal to) the given key from a given node
+         * @param node Node to start the rank from
+         * @param k key to find the rank of
+         * @param inclusive true to count the key too if it's in the BytesFTree
+         * @return the rank of the key in the subtree of the node
+         */
+        private int rank(Node node, byte[] k, boolean inclusive){
+            int rank = 0;
+            while (true){
+                int i = binarySearch(node, k);
+                if (node.isLeaf()) return rank + (i >= 0 ? (inclusive ? i + 1 : i) : -i - 1);
+                if (i >= 0) return rank + (inclusive ? node.ranks[i + 1] : node.ranks[i + 1] - 1); // Every key before the key i is smaller
+                i = -i - 1;
+                rank += node.ranks[i];
+                node = node.children[i];
+            }
+        }
+
+    /**
+     * Finds the key that is the n-th smallest key in the BytesFTree
+     * @param n index of the key to find
+     * @return the n-th smallest key in the BytesFTree or null if n is out of bounds
+     */
+    public byte[] select(int n){
+        if (n < 0 || n >= root.size) return null;
+        Node node = root;
+        while (!node.isLeaf()){
+            // The child is found with a binary search on the ranks of the node (the last child that starts at or before n)
+            int low = 0;
+            int high = node.count;
+            while (low < high){
+                int mid = (low + high + 1) >>> 1;
+                if (node.ranks[mid] <= n) low = mid;
+                else high = mid - 1;
+            }
+            // The key i comes right after the keys of the child i
+            if (low < node.count && n == node.ranks[low + 1] - 1) return node.key(low);
+            n -= node.ranks[low];
+            node = node.children[low];
+        }
+        return node.key(n);
+    }
+
+    /**
+     * Finds the key that is the largest key less than or equal to the given key
+     * @param k key to find the floor of
+     * @return the floor of the key or null if there is none
+     */
+    public byte[] floor(byte[] k){
+        Node node = root;
+        byte[] floor = null;
+        while (!node.isEmpty()){
+            int i = binarySearch(node, k);
+            if (i >= 0) return k.clone(); // Found the exact key
+            i = -i - 1;
+            if (i > 0) floor = node.key(i - 1); // The key before i is a candidate, the left subtree may still have a closer one
+            if (node.isLeaf()) break;
+            node = node.children[i];
+        }
+        return floor;
+    }
+
+    /**
+     * Finds the key that is the smallest key greater than or equal to the given key
+     * @param k key to find the ceiling of
+     * @return the ceiling of the key or null if there is none
+     */
+    public byte[] ceiling(byte[] k){
+        Node node = root;
+        byte[] ceiling = null;
+        while (!node.isEmpty()){
+            int i = binarySearch(node, k);
+            if (i >= 0) return k.clone(); // Found the exact key
+            i = -i - 1;
+            if (i < node.count) ceiling = node.key(i); // The key at i is a candidate, the child before it may still have a closer one
+            if (node.isLeaf()) break;
+            node = node.children[i];
+        }
+        return ceiling;
+    }
+
+    /**
+     * Compares a key with the key i of a node
+     * @return a negative number if k is smaller, 0 if they are equal and a positive number if k is bigger
+     */
+    private int compare(byte[] k, Node n, int i){
+        int p = n.prefix.length;
+        int cmp = compare(k, 0, Math.min(k.length, p), n.prefix, 0, p);
+        if (cmp != 0 || k.length < p) return cmp;
+        return compare(k, p, k.length, n.suffixes, n.start(i), n.start(i + 1));
+    }
+
+    /**
+     * Binary search for the key in the node
+     * The key is compared with the prefix of the node once, if it doesn't start with it it goes before or after every key
+     * @param n Node to search the key in
+     * @param k key to search
+     * @return the index of the key in the node if it's there, otherwise -(index of the child where it could be) - 1
+     */
+    private int binarySearch(Node n, byte[] k){
+        if (n.count == 0) return -1;
+        byte[] prefix = n.prefix;
+        int p = prefix.length;
+        int cmp = compare(k, 0, Math.min(k.length, p), prefix, 0, p);
+        if (cmp < 0 || (cmp == 0 && k.length < p)) return -1;
+        if (cmp > 0) return -n.count - 1;
+
+        byte[] suffixes = n.suffixes;
+        int[] offsets = n.offsets;
+        int length = keyLength - p; // Of every suffix when there are no offsets
+        int low = 0;
+        int high = n.count - 1;
+
+        while (low <= high){
+            int mid = (high + low) >>> 1;
+            int from = offsets == null ? mid * length : offsets[mid];
+            cmp = compare(k, p, k.length, suffixes, from, offsets == null ? from + length : offsets[mid + 1]);
+
+            if (cmp == 0) return mid;
+            else if (cmp < 0) high = mid - 1;
+            else low = mid + 1;
+        }
+        return -low - 1;
+    }
+}
@@ -0,0 +1,89 @@
+package ftree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec
+ * Turns keys or values into a fixed number of bytes so they can be stored in the pages of a DiskFTree,
+ * in FTree snapshots (writeTo and readFrom) and in the log of a DurableFTree
+ * @param <T> type of the encoded objects
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public interface Codec<T>
+{
+    /**
+     * @return the number of bytes used by every encoded object
+     */
+    int size();
+
+    /**
+     * Writes an object at a given position of the buffer (the position of the buffer is not changed)
+     * @param buffer buffer to write to
+     * @param offset position of the first byte
+     * @param value object to be written (not null)
+     */
+    void write(ByteBuffer buffer, int offset, T value);
+
+    /**
+     * Reads an object from a given position of the buffer (the position of the buffer is not changed)
+     * @param buffer buffer to read from
+     * @param offset position of the first byte
+     * @return the object that was read
+     */
+    T read(ByteBuffer buffer, int offset);
+
+    /**
+     * Codec for Integer (4 bytes)
+     */
+    Codec<Integer> INT = new Codec<Integer>() {
+        public int size(){ return 4; }
+        public void write(ByteBuffer buffer, int offset, Integer value){ buffer.putInt(offset, value); }
+        public Integer read(ByteBuffer buffer, int offset){ return buffer.getInt(offset); }
+    };
+
+    /**
+     * Codec for Long (8 bytes)
+     */
+    Codec<Long> LONG = new Codec<Long>() {
+        public int size(){ return 8; }
+        public void write(ByteBuffer buffer, int offset, Long value){ buffer.putLong(offset, value); }
+        public Long read(ByteBuffer buffer, int offset){ return buffer.getLong(offset); }
+    };
+
+    /**
+     * Codec for Double (8 bytes)
+     */
+    Codec<Double> DOUBLE = new Codec<Double>() {
+        public int size(){ return 8; }
+        public void write(ByteBuffer buffer, int offset, Double value){ buffer.putDouble(offset, value); }
+        public Double read(ByteBuffer buffer, int offset){ return buffer.getDouble(offset); }
+    };
+
+    /**
+     * Codec for strings of up to maxBytes bytes in UTF-8 (2 bytes for the length plus maxBytes)
+     * @param maxBytes the most bytes an encoded string can have
+     * @return the codec
+     */
+    static Codec<String> string(int maxBytes)
+    {
+        if (maxBytes < 0 || maxBytes > Short.MAX_VALUE) throw new IllegalArgumentException("maxBytes must be between 0 and " + Short.MAX_VALUE);
+        return new Codec<String>() {
+            public int size(){ return 2 + maxBytes; }
+
+            public void write(ByteBuffer buffer, int offset, String value){
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > maxBytes) throw new IllegalArgumentException("String longer than " + maxBytes + " bytes: " + value);
+                buffer.putShort(offset, (short) bytes.length);
+                for (int i = 0; i < bytes.length; i++) buffer.put(offset + 2 + i, bytes[i]);
+            }
+
+            public String read(ByteBuffer buffer, int offset){
+                byte[] bytes = new byte[buffer.getShort(offset)];
+                for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(offset + 2 + i);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,310 @@
+package ftree;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ConcurrentFTree
+ * Thread-safe FTree that uses optimistic lock coupling: every node has a version (a StampedLock)
+ * Readers never lock, they read a node, read the version of the child and then check that the version of the node
+ * didn't change, restarting from the root if it did
+ * Writers go down the same way and only turn the version into a write lock on the nodes they change:
+ * the leaf (or node) where the key goes and, when a child is full, that child and its parent for the split
+ * It has the point operations of the FTree (get, contains, put), the ordered ones need the sizes of the subtrees
+ * which would force every writer to lock the whole path
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class ConcurrentFTree<Key extends Comparable<Key>, Value>
+{
+    private final int g;
+    private final int TWOxG;
+    private final int TWOxG_1;
+    private final int g_1;
+    private volatile Node root;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Constructor for the ConcurrentFTree
+     * @param degree the degree of the ConcurrentFTree (minimum 2) which determines the number of children each node can have (g children and g-1 keys)
+     */
+    public ConcurrentFTree(int degree)
+    {
+        assert(degree >= 2);
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        root = new Node(true, 0);
+    }
+
+    /**
+     * Node class for the ConcurrentFTree
+     * Same layout as the FTree nodes plus the lock that holds the version of the node,
+     * the arrays are never replaced so a reader that sees a node in the middle of a change only reads wrong entries
+     * (never a wrong array) and the version check throws them away
+     */
+    private class Node {
+        final StampedLock lock = new StampedLock();
+        final Key[] keys;
+        final Value[] values;
+        final Node[] children;
+        final int height;
+        int count;
+
+        /**
+         * Constructor for the Node
+         * @param leaf true if the node is a leaf (leaves don't need the children array)
+         * @param height height of the node
+         */
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf, int height){
+            keys = (Key[]) new Comparable[TWOxG_1];
+            values = (Value[]) new Object[TWOxG_1];
+            children = leaf ? null : (Node[]) new ConcurrentFTree.Node[TWOxG];
+            this.height = height;
+        }
+
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == TWOxG_1;
+        }
+    }
+
+    /**
+     * @return the number of keys in the ConcurrentFTree
+     */
+    public int size()
+    {
+        return (int) size.sum();
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the ConcurrentFTree
+     */
+    public int height()
+    {
+        return root.height;
+    }
+
+    /**
+     * Checks if the key is present in the ConcurrentFTree
+     * @param k key to be checked
+     * @return true if the key is in the ConcurrentFTree, false otherwise
+     */
+    public boolean contains(Key k)
+    {
+        return find(k, false) != null;
+    }
+
+    /**
+     * Gets the value of the key without locking
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the ConcurrentFTree
+     */
+    @SuppressWarnings("unchecked")
+    public Value get(Key k)
+    {
+        Object v = find(k, true);
+        return v == MISSING ? null : (Value) v;
+    }
+
+        private static final Object MISSING = new Object();
+        private static final Object PRESENT = new Object();
+
+        /**
+         * Looks for a key going down from the root with optimistic reads
+         * @param k key to look for
+         * @param wantValue true to return the value, false to only know if the key is there
+         * @return the value of the key (or PRESENT if wantValue is false), MISSING or null if wantValue is false and the key is not there
+         */
+        private Object find(Key k, boolean wantValue){
+            for (int attempt = 0; ; attempt++){
+                if (attempt > 0) backOff(attempt);
+                Node node = root;
+                long version = node.lock.tryOptimisticRead();
+                if (version == 0 || node != root) continue; // Locked or the root changed
+                try {
+                    while (true){
+                        int i = binarySearch(node, k);
+                        if (i < node.count && k.compareTo(node.keys[i]) == 0){ // Checks if the key is in this node
+                            Object v = wantValue ? node.values[i] : PRESENT;
+                            if (!node.lock.validate(version)) break;
+                            return v;
+                        }
+                        if (node.isLeaf()){
+                            if (!node.lock.validate(version)) break;
+                            return wantValue ? MISSING : null;
+                        }
+                        Node child = node.children[i];
+                        long childVersion = child.lock.tryOptimisticRead();
+                        if (childVersion == 0 || !node.lock.validate(version)) break;
+                        node = child;
+                        version = childVersion;
+                    }
+                } catch (RuntimeException e){
+                    // A node read in the middle of a change can have a wrong count or entries, only a valid read is a real error
+                    if (node.lock.validate(version)) throw e;
+                }
+            }
+        }
+
+    /**
+     * Inserts a key-value pair into the ConcurrentFTree (overwrites the value if the key is already there)
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    public void put(Key k, Value v)
+    {
+        for (int attempt = 0; !tryPut(k, v); attempt++){
+            backOff(attempt);
+        }
+    }
+
+        /**
+         * One attempt to insert a key-value pair, it fails if a node on the path changed while it was read
+         * or after splitting a node (the descent starts again from the root with the new layout)
+         * @param key key to be inserted
+         * @param value value to be inserted
+         * @return true if the pair was inserted, false if it has to try again
+         */
+        private boolean tryPut(Key key, Value value){
+            Node node = root;
+            long version = node.lock.tryOptimisticRead();
+            if (version == 0 || node != root) return false;
+
+            if (node.isFull()){ // Splits the root
+                long stamp = node.lock.tryConvertToWriteLock(version);
+                if (stamp == 0) return false;
+                if (node == root){
+                    Node newRoot = new Node(false, node.height + 1);
+                    newRoot.children[0] = node;
+                    split(newRoot, 0);
+                    root = newRoot;
+                }
+                node.lock.unlockWrite(stamp);
+                return false;
+            }
+
+            try {
+                while (true){
+                    int i = binarySearch(node, key);
+
+                    // Checks if the key is already in the node
+                    if (i < node.count && key.compareTo(node.keys[i]) == 0){
+                        long stamp = node.lock.tryConvertToWriteLock(version);
+                        if (stamp == 0) return false;
+                        node.values[i] = value;
+                        node.lock.unlockWrite(stamp);
+                        return true;
+                    }
+                    if (node.isLeaf()){
+                        long stamp = node.lock.tryConvertToWriteLock(version);
+                        if (stamp == 0) return false;
+                        // The version didn't change since the node was seen not full, so there is room
+                        System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+                        System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+                        node.keys[i] = key;
+                        node.values[i] = value;
+                        node.count++;
+                        node.lock.unlockWrite(stamp);
+                        size.increment();
+                        return true;
+                    }
+
+                    Node child = node.children[i];
+                    long childVersion = child.lock.tryOptimisticRead();
+                    if (childVersion == 0) return false;
+                    boolean childFull = child.isFull();
+                    if (!node.lock.validate(version)) return false;
+
+                    if (childFull){ // Locks only the parent and the child to split it
+                        long stamp = node.lock.tryConvertToWriteLock(version);
+                        if (stamp == 0) return false;
+                        long childStamp = child.lock.tryConvertToWriteLock(childVersion);
+                        if (childStamp == 0){
+                            node.lock.unlockWrite(stamp);
+                            return false;
+                        }
+                        split(node, i);
+                        child.lock.unlockWrite(childStamp);
+                        node.lock.unlockWrite(stamp);
+                        return false;
+                    }
+                    node = child;
+                    version = childVersion;
+                }
+            } catch (RuntimeException e){
+                if (node.lock.validate(version)) throw e;
+                return false;
+            }
+        }
+
+        /**
+         * Splits a node in two (the caller holds the write locks of the parent and of the node)
+         * The new node is only reachable after the parent is unlocked so it doesn't need to be locked
+         * @param parent Node that is the parent of the node to be split
+         * @param index index of the node to be split
+         */
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            Node newNode = new Node(splitNode.isLeaf(), splitNode.height); // Node to be created where the second half of the splitNode will be
+
+            // Moves the middle entry of the splitNode to the parent
+            int moved = parent.count - index;
+            System.arraycopy(parent.keys, index, parent.keys, index + 1, moved);
+            System.arraycopy(parent.values, index, parent.values, index + 1, moved);
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            parent.keys[index] = splitNode.keys[g_1];
+            parent.values[index] = splitNode.values[g_1];
+            parent.children[index + 1] = newNode;
+            parent.count++;
+
+            // Moves the second half of the splitNode to the newNode
+            System.arraycopy(splitNode.keys, g, newNode.keys, 0, g_1);
+            System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+            if (!splitNode.isLeaf()){
+                System.arraycopy(splitNode.children, g, newNode.children, 0, g);
+                Arrays.fill(splitNode.children, g, TWOxG, null);
+            }
+            Arrays.fill(splitNode.keys, g_1, TWOxG_1, null); // Clears the moved references so they can be collected
+            Arrays.fill(splitNode.values, g_1, TWOxG_1, null);
+            splitNode.count = g_1;
+            newNode.count = g_1;
+        }
+
+        /**
+         * Waits a little before trying again, yielding the processor if the node keeps changing
+         * @param attempt number of attempts already made
+         */
+        private static void backOff(int attempt){
+            if (attempt > 16) Thread.yield();
+        }
+
+    /**
+     * Binary search for the key in the node
+     * @param n Node to search the key in
+     * @param k key to search
+     * @return the index of the key in the node or the index of the child where it could be
+     */
+    private int binarySearch(Node n, Key k){
+        int low = 0;
+        int high = n.count - 1;
+
+        while (low <= high){
+            int mid = (high + low) >>> 1;
+            int cmp = k.compareTo(n.keys[mid]);
+
+            if (cmp == 0) return mid;
+            else if (cmp < 0) high = mid - 1;
+            else low = mid + 1;
+        }
+        return low;
+    }
+}
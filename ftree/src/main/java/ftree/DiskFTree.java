@@ -0,0 +1,1031 @@
+package ftree;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * DiskFTree
+ * FTree stored in a file, every node is a fixed-size page and only the pages that are used are read,
+ * so reopening the file only reads the header
+ * The pages are read into a cache with a given number of bytes and CLOCK eviction: the pages near the root are used
+ * by every descent and stay in memory, a put changes the cached pages and the changed (dirty) pages are written
+ * to the file when they leave the cache or on flush
+ * Keys and values are stored with a Codec, the values can't be null
+ * The pages are written over in place, so the file is only consistent right after flush (or close): once a changed
+ * page is written (when it leaves the cache or during a flush) a crash leaves pages that don't match the header.
+ * The header has a mark that is set before the first page is written after a flush and cleared by the flush
+ * once every page is on disk, opening a file with the mark set throws an IOException instead of reading a broken tree
+ * (the DiskFTree is not crash safe, DurableFTree is)
+ * Any number of threads can read at the same time, a put waits for the readers and blocks them (the lock is fair,
+ * so readers that come after a waiting put wait for it and a put can't be starved by a stream of reads)
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class DiskFTree<Key extends Comparable<Key>, Value> implements Closeable
+{
+    private static final int MAGIC = 0x46547265; // "FTre"
+    private static final int FORMAT = 2; // 2 added the ranks of the children to the pages
+    private static final int HEADER = 64; // Bytes before the first page
+    private static final long DEFAULT_CACHE_BYTES = 16L << 20;
+    private static final int MIN_SLOTS = 64; // More than the pages one thread pins at a time (its path plus a split)
+    private static final int SLOT_OVERHEAD = 16; // Bytes used by the cache for every page besides the page itself
+    private static final int SLAB = 1 << 20; // Bytes of cached pages allocated at a time
+
+    // Layout of a page: count, height, size, keys, values, children (page numbers), ranks of the children
+    // (ranks[i] is the number of keys of the subtree before the child i, like the offsets of the FTree nodes)
+    private static final int COUNT = 0;
+    private static final int HEIGHT = 4;
+    private static final int SIZE = 8;
+    private static final int KEYS = 12;
+
+    private final int g;
+    private final int TWOxG;
+    private final int TWOxG_1;
+    private final int g_1;
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valueCodec;
+    private final int keySize;
+    private final int valueSize;
+    private final int valuesOffset;
+    private final int childrenOffset;
+    private final int ranksOffset;
+    private final int pageSize;
+    private final FileChannel channel;
+    private final Cache cache;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true); // Fair so a waiting put stops new readers
+    private int root;
+    private int pageCount;
+    private boolean marked; // The header says the file has changed since the last flush (with the lock of the cache or the write lock)
+
+    /**
+     * Opens the DiskFTree stored in a file, or creates an empty one if the file doesn't exist or is empty,
+     * with a cache of 16 MB
+     * @param file file of the DiskFTree
+     * @param degree the degree of the DiskFTree (minimum 2), it must be the same the file was created with
+     * @param keyCodec codec of the keys
+     * @param valueCodec codec of the values
+     * @throws IOException if the file can't be opened or was created with another degree or codecs
+     */
+    public DiskFTree(Path file, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException
+    {
+        this(file, degree, keyCodec, valueCodec, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Opens the DiskFTree stored in a file, or creates an empty one if the file doesn't exist or is empty
+     * @param file file of the DiskFTree
+     * @param degree the degree of the DiskFTree (minimum 2), it must be the same the file was created with
+     * @param keyCodec codec of the keys
+     * @param valueCodec codec of the values
+     * @param cacheBytes memory of the cache of pages (every cached page takes cachedPageBytes()), it holds at least 64 pages
+     * @throws IOException if the file can't be opened or was created with another degree or codecs
+     */
+    public DiskFTree(Path file, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec, long cacheBytes) throws IOException
+    {
+        assert(degree >= 2);
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        keySize = keyCodec.size();
+        valueSize = valueCodec.size();
+        valuesOffset = KEYS + TWOxG_1 * keySize;
+        childrenOffset = valuesOffset + TWOxG_1 * valueSize;
+        ranksOffset = childrenOffset + 4 * TWOxG;
+        pageSize = ranksOffset + 4 * TWOxG;
+        cache = new Cache((int) Math.min(Integer.MAX_VALUE / 2, Math.max(MIN_SLOTS, cacheBytes / cachedPageBytes())));
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0){
+                int r = allocate(0);
+                root = cache.page(r);
+                cache.unpin(r);
+                flush();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+        /**
+         * Reads the root and the number of pages from the header and checks it matches this DiskFTree
+         */
+        private void readHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a DiskFTree file");
+            if (header.getInt(4) != FORMAT) throw new IOException("Unknown DiskFTree format " + header.getInt(4));
+            if (header.getInt(8) != g || header.getInt(12) != keySize || header.getInt(16) != valueSize){
+                throw new IOException("The file was created with degree " + header.getInt(8) + ", keys of " + header.getInt(12)
+                                      + " bytes and values of " + header.getInt(16) + " bytes");
+            }
+            if (header.getInt(28) != 0) throw new IOException("The DiskFTree file was changed and not flushed, it may be inconsistent");
+            root = header.getInt(20);
+            pageCount = header.getInt(24);
+        }
+
+        /**
+         * Sets the mark of the header and forces it to disk before the first page is written over after a flush
+         * (with the lock of the cache)
+         */
+        private void markChanged(){
+            if (marked) return;
+            try {
+                channel.write(ByteBuffer.allocate(4).putInt(0, 1), 28);
+                channel.force(false);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            marked = true;
+        }
+
+    /**
+     * Writes the changed pages and the header and forces every change to the disk
+     * @throws IOException if the file can't be written
+     */
+    public void flush() throws IOException
+    {
+        lock.writeLock().lock();
+        try {
+            cache.writeDirty();
+            channel.force(false); // The pages are on disk before the header that points to them
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, g).putInt(12, keySize).putInt(16, valueSize);
+            header.putInt(20, root).putInt(24, pageCount).putInt(28, 0); // Clears the mark
+            channel.write(header, 0);
+            channel.force(true);
+            marked = false;
+        } catch (UncheckedIOException e){
+            throw e.getCause();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the file (the DiskFTree can't be used after)
+     * @throws IOException if the file can't be written
+     */
+    public void close() throws IOException
+    {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the number of keys in the DiskFTree
+     */
+    public int size()
+    {
+        lock.readLock().lock();
+        try {
+            return pageInt(root, SIZE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return the number of keys in the DiskFTree between min and max (inclusive)
+     */
+    public int size(Key min, Key max){
+        if (min.compareTo(max) > 0) return 0;
+        lock.readLock().lock();
+        try {
+            // Goes down while min and max are in the same child, the keys before that child count for both so they cancel out
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    if (b.getInt(o + HEIGHT) == 0) break;
+                    int count = b.getInt(o + COUNT);
+                    int i = binarySearch(b, o, count, min);
+                    if (i != binarySearch(b, o, count, max) || (i < count && max.compareTo(key(b, o, i)) == 0)) break;
+                    page = child(b, o, i);
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+            return rank(page, max, true) - rank(page, min, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the DiskFTree
+     */
+    public int height()
+    {
+        lock.readLock().lock();
+        try {
+            return pageInt(root, HEIGHT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the key is present in the DiskFTree
+     * @param k key to be checked
+     * @return true if the key is in the DiskFTree, false otherwise
+     */
+    public boolean contains(Key k)
+    {
+        return get(k) != null;
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the DiskFTree
+     */
+    public Value get(Key k)
+    {
+        lock.readLock().lock();
+        try {
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    int i = binarySearch(b, o, count, k);
+                    if (i < count && k.compareTo(key(b, o, i)) == 0) return value(b, o, i); // Checks if the key is in this page
+                    if (b.getInt(o + HEIGHT) == 0) return null;
+                    page = child(b, o, i); // If the key is not in this page, we go to the child where it could be
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a key-value pair into the DiskFTree (overwrites the value if the key is already there)
+     * @param k key to be inserted
+     * @param v value to be inserted (not null)
+     */
+    public void put(Key k, Value v)
+    {
+        if (v == null) throw new NullPointerException("DiskFTree values can't be null");
+        lock.writeLock().lock();
+        try {
+            int s = cache.pin(root);
+            try {
+                ByteBuffer b = cache.buffer(s);
+                int o = cache.offset(s);
+                if (b.getInt(o + COUNT) == TWOxG_1)
+                {
+                    int newRoot = allocate(b.getInt(o + HEIGHT) + 1);
+                    ByteBuffer nb = cache.buffer(newRoot);
+                    int no = cache.offset(newRoot);
+                    nb.putInt(no + childrenOffset, root);
+                    nb.putInt(no + SIZE, b.getInt(o + SIZE));
+                    cache.unpin(s);
+                    s = newRoot;
+                    split(newRoot, 0);
+                    root = cache.page(newRoot);
+                }
+                put(s, k, v);
+            } finally {
+                cache.unpin(s);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+        /**
+         * Inserts a key-value pair into the DiskFTree from a given page (not full)
+         * @param s pinned slot of the page to insert the key-value pair
+         * @param key key to be inserted
+         * @param value value to be inserted
+         * @return true if the key was new, false if only its value changed
+         */
+        private boolean put(int s, Key key, Value value){
+            ByteBuffer b = cache.buffer(s);
+            int o = cache.offset(s);
+            int count = b.getInt(o + COUNT);
+            int i = binarySearch(b, o, count, key);
+
+            // Checks if the key is already in the page
+            if (i < count && key.compareTo(key(b, o, i)) == 0){
+                valueCodec.write(b, o + valuesOffset + i * valueSize, value);
+                cache.dirty(s);
+                return false;
+            }
+            if (b.getInt(o + HEIGHT) == 0){
+                copy(b, o + KEYS + i * keySize, b, o + KEYS + (i + 1) * keySize, (count - i) * keySize);
+                copy(b, o + valuesOffset + i * valueSize, b, o + valuesOffset + (i + 1) * valueSize, (count - i) * valueSize);
+                keyCodec.write(b, o + KEYS + i * keySize, key);
+                valueCodec.write(b, o + valuesOffset + i * valueSize, value);
+                b.putInt(o + COUNT, count + 1);
+                b.putInt(o + SIZE, b.getInt(o + SIZE) + 1);
+                cache.dirty(s);
+                return true;
+            }
+            if (pageInt(child(b, o, i), COUNT) == TWOxG_1){
+                split(s, i);
+                // Checks if the key is in the new page after the split
+                int cmp = key.compareTo(key(b, o, i));
+                if (cmp == 0){
+                    valueCodec.write(b, o + valuesOffset + i * valueSize, value);
+                    return false;
+                }
+                else if (cmp > 0) i++;
+            }
+            int c = cache.pin(child(b, o, i));
+            boolean added;
+            try {
+                added = put(c, key, value);
+            } finally {
+                cache.unpin(c);
+            }
+            if (added){
+                b.putInt(o + SIZE, b.getInt(o + SIZE) + 1);
+                for (int j = i + 1; j <= b.getInt(o + COUNT); j++) b.putInt(o + ranksOffset + j * 4, childRank(b, o, j) + 1);
+                cache.dirty(s);
+            }
+            return added;
+        }
+
+        /**
+         * Splits a page in two
+         * @param parent pinned slot of the parent of the page to be split
+         * @param index index of the page to be split
+         */
+        private void split(int parent, int index)
+        {
+            ByteBuffer pb = cache.buffer(parent);
+            int po = cache.offset(parent);
+            int split = cache.pin(child(pb, po, index)); // Page to be split
+            int right = -1; // Page to be created where the second half of the split page will be
+            try {
+                ByteBuffer sb = cache.buffer(split);
+                int so = cache.offset(split);
+                int height = sb.getInt(so + HEIGHT);
+                right = allocate(height);
+                ByteBuffer nb = cache.buffer(right);
+                int no = cache.offset(right);
+
+                // Moves the middle entry of the split page to the parent
+                int parentCount = pb.getInt(po + COUNT);
+                int moved = parentCount - index;
+                copy(pb, po + KEYS + index * keySize, pb, po + KEYS + (index + 1) * keySize, moved * keySize);
+                copy(pb, po + valuesOffset + index * valueSize, pb, po + valuesOffset + (index + 1) * valueSize, moved * valueSize);
+                copy(pb, po + childrenOffset + (index + 1) * 4, pb, po + childrenOffset + (index + 2) * 4, moved * 4);
+                copy(pb, po + ranksOffset + (index + 1) * 4, pb, po + ranksOffset + (index + 2) * 4, moved * 4); // The keys before them didn't change
+                copy(sb, so + KEYS + g_1 * keySize, pb, po + KEYS + index * keySize, keySize);
+                copy(sb, so + valuesOffset + g_1 * valueSize, pb, po + valuesOffset + index * valueSize, valueSize);
+                pb.putInt(po + childrenOffset + (index + 1) * 4, cache.page(right));
+                pb.putInt(po + COUNT, parentCount + 1);
+
+                // Moves the second half of the split page to the right page, the sizes come from the ranks of the split page
+                // so the children don't have to be read
+                copy(sb, so + KEYS + g * keySize, nb, no + KEYS, g_1 * keySize);
+                copy(sb, so + valuesOffset + g * valueSize, nb, no + valuesOffset, g_1 * valueSize);
+                int leftSize = g_1;
+                if (height > 0){
+                    copy(sb, so + childrenOffset + g * 4, nb, no + childrenOffset, g * 4);
+                    int before = childRank(sb, so, g); // Keys of the left half and the middle key
+                    for (int i = 0; i < g; i++) nb.putInt(no + ranksOffset + i * 4, childRank(sb, so, g + i) - before);
+                    leftSize = before - 1;
+                }
+                int newSize = sb.getInt(so + SIZE) - leftSize - 1;
+                sb.putInt(so + COUNT, g_1);
+                nb.putInt(no + COUNT, g_1);
+                nb.putInt(no + SIZE, newSize);
+                sb.putInt(so + SIZE, leftSize);
+                pb.putInt(po + ranksOffset + (index + 1) * 4, childRank(pb, po, index) + leftSize + 1);
+                cache.dirty(parent);
+                cache.dirty(split);
+            } finally {
+                if (right >= 0) cache.unpin(right);
+                cache.unpin(split);
+            }
+        }
+
+    /**
+     * Iterates through all the keys in the DiskFTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the keys in the DiskFTree between min and max (inclusive)
+     */
+    public Iterable<Key> keys(Key min, Key max)
+    {
+        List<Key> keys = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            keysInBetween(root, keys, min, max);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return keys;
+    }
+
+        /**
+         * Adds the keys between min and max of the subtree of a page, visiting only the children that overlap the range
+         * @param page page to start from
+         * @param keys list where the keys are added
+         * @param min key of the first key
+         * @param max key of the last key
+         * @return false if a key bigger than max was found (nothing else needs to be visited)
+         */
+        private boolean keysInBetween(int page, List<Key> keys, Key min, Key max){
+            int s = cache.pin(page);
+            try {
+                ByteBuffer b = cache.buffer(s);
+                int o = cache.offset(s);
+                int count = b.getInt(o + COUNT);
+                boolean leaf = b.getInt(o + HEIGHT) == 0;
+                for (int i = binarySearch(b, o, count, min); i <= count; i++){
+                    if (!leaf && !keysInBetween(child(b, o, i), keys, min, max)) return false;
+                    if (i == count) break;
+                    Key k = key(b, o, i);
+                    if (k.compareTo(max) > 0) return false;
+                    keys.add(k);
+                }
+                return true;
+            } finally {
+                cache.unpin(s);
+            }
+        }
+
+    /**
+     * @return the minimum key in the DiskFTree
+     */
+    public Key min()
+    {
+        lock.readLock().lock();
+        try {
+            if (pageInt(root, SIZE) == 0) return null;
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    if (b.getInt(o + HEIGHT) == 0) return key(b, o, 0);
+                    page = child(b, o, 0); // Travels to the leftmost page
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the maximum key in the DiskFTree
+     */
+    public Key max()
+    {
+        lock.readLock().lock();
+        try {
+            if (pageInt(root, SIZE) == 0) return null;
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    if (b.getInt(o + HEIGHT) == 0) return key(b, o, count - 1);
+                    page = child(b, o, count); // Travels to the rightmost page
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Determines the ammount of keys that are less than the given key
+     * @param k key to find the rank of
+     * @return the rank of the key in the DiskFTree
+     */
+    public int rank(Key k){
+        lock.readLock().lock();
+        try {
+            return rank(root, k, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+        /**
+         * Determines the ammount of keys that are less than (or equal to) the given key from a given page (with the read lock)
+         * The ranks of the page give the keys before the child i at once, so only the pages of the path are read
+         * @param page page to start the rank from
+         * @param k key to find the rank of
+         * @param inclusive true to count the key too if it's in the DiskFTree
+         * @return the rank of the key in the subtree of the page
+         */
+        private int rank(int page, Key k, boolean inclusive){
+            int rank = 0;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    int i = binarySearch(b, o, count, k);
+                    boolean found = i < count && k.compareTo(key(b, o, i)) == 0;
+                    if (b.getInt(o + HEIGHT) == 0) return rank + ((found && inclusive) ? i + 1 : i);
+                    if (found) return rank + (inclusive ? childRank(b, o, i + 1) : childRank(b, o, i + 1) - 1);
+                    rank += childRank(b, o, i);
+                    page = child(b, o, i);
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        }
+
+    /**
+     * Finds the key that is the n-th smallest key in the DiskFTree
+     * @param n index of the key to find
+     * @return the n-th smallest key in the DiskFTree or null if n is out of bounds
+     */
+    public Key select(int n){
+        lock.readLock().lock();
+        try {
+            if (n < 0 || n >= pageInt(root, SIZE)) return null;
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    if (b.getInt(o + HEIGHT) == 0) return key(b, o, n);
+                    // The child is found with a binary search on the ranks of the page (the last child that starts at or before n)
+                    int low = 0;
+                    int high = count;
+                    while (low < high){
+                        int mid = (low + high + 1) >>> 1;
+                        if (childRank(b, o, mid) <= n) low = mid;
+                        else high = mid - 1;
+                    }
+                    // The key i comes right after the keys of the child i
+                    if (low < count && n == childRank(b, o, low + 1) - 1) return key(b, o, low);
+                    n -= childRank(b, o, low);
+                    page = child(b, o, low);
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the key that is the largest key less than or equal to the given key
+     * @param k key to find the floor of
+     * @return the floor of the key or null if there is none
+     */
+    public Key floor(Key k){
+        lock.readLock().lock();
+        try {
+            Key floor = null;
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    int i = binarySearch(b, o, count, k);
+                    if (i < count){
+                        Key found = key(b, o, i);
+                        if (k.compareTo(found) == 0) return found; // Found the exact key
+                    }
+                    if (i > 0) floor = key(b, o, i - 1); // The left subtree may still have a closer one
+                    if (b.getInt(o + HEIGHT) == 0) return floor;
+                    page = child(b, o, i);
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the key that is the smallest key greater than or equal to the given key
+     * @param k key to find the ceiling of
+     * @return the ceiling of the key or null if there is none
+     */
+    public Key ceiling(Key k){
+        lock.readLock().lock();
+        try {
+            Key ceiling = null;
+            int page = root;
+            while (true){
+                int s = cache.pin(page);
+                try {
+                    ByteBuffer b = cache.buffer(s);
+                    int o = cache.offset(s);
+                    int count = b.getInt(o + COUNT);
+                    int i = binarySearch(b, o, count, k);
+                    if (i < count){
+                        Key found = key(b, o, i);
+                        if (k.compareTo(found) == 0) return found; // Found the exact key
+                        ceiling = found; // The child before it may still have a closer one
+                    }
+                    if (b.getInt(o + HEIGHT) == 0) return ceiling;
+                    page = child(b, o, i);
+                } finally {
+                    cache.unpin(s);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of times a page was found in the cache
+     */
+    public long cacheHits()
+    {
+        return cache.hits.sum();
+    }
+
+    /**
+     * @return the number of times a page had to be read from the file
+     */
+    public long cacheMisses()
+    {
+        return cache.misses;
+    }
+
+    /**
+     * @return the number of pages that left the cache to make room for others
+     */
+    public long cacheEvictions()
+    {
+        return cache.evictions;
+    }
+
+    /**
+     * @return the number of pages the cache holds
+     */
+    public int cacheCapacity()
+    {
+        return cache.capacity;
+    }
+
+    /**
+     * @return the bytes of memory the cache uses for every page (the size of the page in the file plus its bookkeeping)
+     */
+    public int cachedPageBytes()
+    {
+        return pageSize + SLOT_OVERHEAD;
+    }
+
+        /**
+         * Binary search for the key in a page
+         * @param b slab of the page
+         * @param o offset of the page in the slab
+         * @param count number of keys in the page
+         * @param k key to search
+         * @return the index of the key in the page or the index of the child where it could be
+         */
+        private int binarySearch(ByteBuffer b, int o, int count, Key k){
+            int low = 0;
+            int high = count - 1;
+
+            while (low <= high){
+                int mid = (high + low) >>> 1;
+                int cmp = k.compareTo(key(b, o, mid));
+
+                if (cmp == 0) return mid;
+                else if (cmp < 0) high = mid - 1;
+                else low = mid + 1;
+            }
+            return low;
+        }
+
+        private Key key(ByteBuffer b, int o, int i){
+            return keyCodec.read(b, o + KEYS + i * keySize);
+        }
+
+        private Value value(ByteBuffer b, int o, int i){
+            return valueCodec.read(b, o + valuesOffset + i * valueSize);
+        }
+
+        private int child(ByteBuffer b, int o, int i){
+            return b.getInt(o + childrenOffset + i * 4);
+        }
+
+        private int childRank(ByteBuffer b, int o, int i){
+            return b.getInt(o + ranksOffset + i * 4);
+        }
+
+        /**
+         * @param page page number
+         * @param field COUNT, HEIGHT or SIZE
+         * @return the field of the page
+         */
+        private int pageInt(int page, int field){
+            int s = cache.pin(page);
+            try {
+                return cache.buffer(s).getInt(cache.offset(s) + field);
+            } finally {
+                cache.unpin(s);
+            }
+        }
+
+        /**
+         * Adds an empty page at the end of the file (it's written when it leaves the cache or on flush)
+         * @param height height of the page
+         * @return the pinned slot of the page
+         */
+        private int allocate(int height){
+            int s = cache.add(pageCount++);
+            cache.buffer(s).putInt(cache.offset(s) + HEIGHT, height);
+            return s;
+        }
+
+        /**
+         * Copies bytes between two places (that can overlap) of the cached pages
+         */
+        private void copy(ByteBuffer from, int src, ByteBuffer to, int dst, int length){
+            if (length <= 0) return;
+            System.arraycopy(from.array(), src, to.array(), dst, length);
+        }
+
+    /**
+     * Memory of a part of the slots of the cache
+     */
+    private static final class Slab {
+        final ByteBuffer buffer; // Bytes of the pages
+        final AtomicIntegerArray pins; // Threads using each page, or negative while the slot changes page
+        final int[] pages; // Page in each slot
+        final boolean[] dirty; // Changed since it was read (with the write lock or the lock of the cache)
+        final boolean[] referenced; // Used since the hand of the clock last passed
+
+        Slab(int slots, int pageSize){
+            buffer = ByteBuffer.allocate(slots * pageSize);
+            pins = new AtomicIntegerArray(slots);
+            pages = new int[slots];
+            dirty = new boolean[slots];
+            referenced = new boolean[slots];
+        }
+    }
+
+    /**
+     * Cache of pages: the pages are read into slots of big byte buffers (slabs) and a table gives the slot of each page
+     * Every thread pins the pages it's using so they stay in their slots, a put only pins the pages of its path
+     * and a reader only pins one page at a time (the path of the recursion for keys)
+     * To make room for a page a hand goes around the slots (CLOCK), a page that was used since the hand last passed
+     * gets a second chance and a pinned page is skipped, so the pages near the root are used by every descent and
+     * stay in the cache while a page read once for a scan is the first to go; a changed page is written before its slot
+     * gets another page
+     * A hit only reads the table and pins the slot, a miss reads the page from the file with the lock of the cache
+     */
+    private final class Cache {
+        private static final int CLAIMED = Integer.MIN_VALUE / 2; // Pins of a slot that is changing page
+
+        final int capacity;
+        final int slabShift; // Slots per slab, as a power of 2
+        final int slabMask;
+        volatile Slab[] slabs = new Slab[0];
+        volatile AtomicIntegerArray table = new AtomicIntegerArray(64); // Slot + 1 of each cached page (0 if not cached)
+        int used; // Slots that were ever used (with the lock)
+        int hand;
+        final LongAdder hits = new LongAdder();
+        volatile long misses; // Only changed with the lock
+        volatile long evictions;
+
+        Cache(int capacity){
+            this.capacity = capacity;
+            slabShift = 31 - Integer.numberOfLeadingZeros(Math.max(1, Math.min(capacity, SLAB / pageSize)));
+            slabMask = (1 << slabShift) - 1;
+        }
+
+        ByteBuffer buffer(int slot){
+            return slabs[slot >>> slabShift].buffer;
+        }
+
+        int offset(int slot){
+            return (slot & slabMask) * pageSize;
+        }
+
+        int page(int slot){
+            return slabs[slot >>> slabShift].pages[slot & slabMask];
+        }
+
+        void dirty(int slot){
+            slabs[slot >>> slabShift].dirty[slot & slabMask] = true;
+        }
+
+        /**
+         * Returns the slot of a page, reading the page if it's not cached, and pins it
+         */
+        int pin(int page){
+            while (true){
+                AtomicIntegerArray table = this.table;
+                int slot = (page < table.length() ? table.get(page) : 0) - 1;
+                if (slot < 0) return miss(page);
+                Slab slab = slabs[slot >>> slabShift];
+                int i = slot & slabMask;
+                if (slab.pins.getAndIncrement(i) >= 0 && slab.pages[i] == page){
+                    if (!slab.referenced[i]) slab.referenced[i] = true; // Only written once per turn of the hand
+                    hits.increment();
+                    return slot;
+                }
+                slab.pins.getAndDecrement(i); // The slot got another page after the table was read
+            }
+        }
+
+        void unpin(int slot){
+            slabs[slot >>> slabShift].pins.getAndDecrement(slot & slabMask);
+        }
+
+        /**
+         * Puts a new page (with zeros) in the cache
+         * @return the pinned slot of the page
+         */
+        synchronized int add(int page){
+            int slot = claim();
+            Slab slab = slabs[slot >>> slabShift];
+            int o = offset(slot);
+            Arrays.fill(slab.buffer.array(), o, o + pageSize, (byte) 0);
+            slab.dirty[slot & slabMask] = true;
+            return publish(slot, page);
+        }
+
+        /**
+         * Writes every changed page to the file (with the write lock)
+         */
+        synchronized void writeDirty(){
+            for (int slot = 0; slot < used; slot++){
+                if (slabs[slot >>> slabShift].dirty[slot & slabMask]) write(slot);
+            }
+        }
+
+            private synchronized int miss(int page){
+                AtomicIntegerArray table = this.table;
+                int slot = (page < table.length() ? table.get(page) : 0) - 1; // Another thread may have read it meanwhile
+                if (slot >= 0){
+                    slabs[slot >>> slabShift].pins.getAndIncrement(slot & slabMask); // Slots only change page with the lock
+                    return slot;
+                }
+                misses++;
+                slot = claim();
+                try {
+                    read(slot, page);
+                } catch (RuntimeException e){
+                    release(slot);
+                    throw e;
+                }
+                return publish(slot, page);
+            }
+
+            /**
+             * Finds a slot for a page, a free one or the slot of a page that is evicted (with the lock)
+             * @return the slot, that no thread can pin until it's published
+             */
+            private int claim(){
+                if (used < capacity) return newSlot();
+                for (int step = 0; step < 2 * capacity; step++){ // After one turn only the pinned pages are left
+                    int slot = hand;
+                    hand = hand + 1 == used ? 0 : hand + 1;
+                    Slab slab = slabs[slot >>> slabShift];
+                    int i = slot & slabMask;
+                    if (slab.referenced[i]){
+                        slab.referenced[i] = false;
+                        continue;
+                    }
+                    if (!slab.pins.compareAndSet(i, 0, CLAIMED)) continue;
+                    if (slab.pages[i] < 0) return slot; // Released after a failed read
+                    if (slab.dirty[i]){
+                        try {
+                            write(slot); // Before the page leaves the table, if it fails the changed page stays cached
+                        } catch (RuntimeException e){
+                            slab.pins.addAndGet(i, -CLAIMED);
+                            throw e;
+                        }
+                    }
+                    table.set(slab.pages[i], 0);
+                    evictions++;
+                    return slot;
+                }
+                return newSlot(); // Every page is pinned by some thread, the cache goes over its capacity
+            }
+
+            private int newSlot(){
+                int slot = used++;
+                if (slot >>> slabShift == slabs.length){
+                    Slab[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+                    grown[slabs.length] = new Slab(1 << slabShift, pageSize);
+                    slabs = grown;
+                }
+                slabs[slot >>> slabShift].pins.set(slot & slabMask, CLAIMED);
+                return slot;
+            }
+
+            /**
+             * Puts a claimed slot in the table with its new page (with the lock)
+             * @return the slot, pinned
+             */
+            private int publish(int slot, int page){
+                Slab slab = slabs[slot >>> slabShift];
+                int i = slot & slabMask;
+                slab.pages[i] = page;
+                slab.referenced[i] = false;
+                if (page >= table.length()){
+                    AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(2 * table.length(), page + 1));
+                    for (int p = 0; p < table.length(); p++) grown.set(p, table.get(p));
+                    table = grown;
+                }
+                table.set(page, slot + 1);
+                slab.pins.addAndGet(i, 1 - CLAIMED); // Releases the claim, pinned for the caller
+                return slot;
+            }
+
+            /**
+             * Frees a claimed slot that didn't get its page (with the lock)
+             */
+            private void release(int slot){
+                Slab slab = slabs[slot >>> slabShift];
+                int i = slot & slabMask;
+                slab.pages[i] = -1;
+                slab.dirty[i] = false;
+                slab.pins.addAndGet(i, -CLAIMED);
+            }
+
+            /**
+             * Reads a page from the file into a slot
+             */
+            private void read(int slot, int page){
+                ByteBuffer in = buffer(slot).duplicate();
+                int o = offset(slot);
+                in.limit(o + pageSize).position(o);
+                long position = HEADER + (long) page * pageSize;
+                try {
+                    while (in.hasRemaining()){
+                        if (channel.read(in, position + in.position() - o) < 0) throw new EOFException("Page " + page + " is not in the file");
+                    }
+                } catch (IOException e){
+                    throw new UncheckedIOException(e);
+                }
+                slabs[slot >>> slabShift].dirty[slot & slabMask] = false;
+            }
+
+            /**
+             * Writes the page of a slot to the file (the file grows if it's a new page)
+             */
+            private void write(int slot){
+                markChanged();
+                Slab slab = slabs[slot >>> slabShift];
+                int i = slot & slabMask;
+                ByteBuffer out = slab.buffer.duplicate();
+                int o = offset(slot);
+                out.limit(o + pageSize).position(o);
+                long position = HEADER + (long) slab.pages[i] * pageSize;
+                try {
+                    while (out.hasRemaining()) channel.write(out, position + out.position() - o);
+                } catch (IOException e){
+                    throw new UncheckedIOException(e);
+                }
+                slab.dirty[i] = false;
+            }
+    }
+}
@@ -0,0 +1,533 @@
+package ftree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * DurableFTree
+ * FTree whose changes are recorded in an append-only write-ahead log, so they survive the process dying
+ * Records are gathered in memory and written with a single fsync for many of them (group commit):
+ * every syncEvery-th record (and every call to sync) waits until the log is on disk, and threads that wait
+ * at the same time share the same fsync
+ * Every checkpointEvery records a background thread writes the FTree to a checkpoint file from a snapshot and deletes
+ * the logs before it, the writers only wait while it switches to a new log; opening the directory loads the checkpoint
+ * and replays the logs after it
+ * Files in the directory: checkpoint (the last checkpoint) and log.N (the logs, N grows with every checkpoint),
+ * the directory itself is forced to disk after a log is created and after the checkpoint is renamed into place
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class DurableFTree<Key extends Comparable<Key>, Value> implements Closeable
+{
+    public static final int DEFAULT_SYNC_EVERY = 1;
+    public static final int DEFAULT_CHECKPOINT_EVERY = 1_000_000;
+
+    private static final int CHECKPOINT_MAGIC = 0x46544370; // "FTCp"
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path dir;
+    private final int degree;
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valueCodec;
+    private final int syncEvery;
+    private final int checkpointEvery;
+    private final int recordSize;
+    private final CRC32 crc = new CRC32();
+    private final Object checkpointLock = new Object();
+    private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DurableFTree checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FTree<Key, Value> tree;
+    private FileChannel log;
+    private long logNumber;
+    private ByteBuffer pending; // Records not written yet
+    private ByteBuffer writing; // Records being written by the thread that syncs
+    private long appended; // Number of the last record appended
+    private long durable; // Number of the last record on disk
+    private boolean syncing;
+    private long sinceCheckpoint;
+    private boolean checkpointQueued; // A background checkpoint is waiting or running
+    private IOException checkpointFailure; // Of the last background checkpoint, thrown by close
+    private IOException failure; // After a failed write the log can't be trusted anymore
+    private boolean closed;
+
+    /**
+     * Opens (or creates) a DurableFTree with the default group commit and checkpoint settings
+     * @param dir directory of the log and checkpoint files
+     * @param degree the degree of the FTree (minimum 2)
+     * @param keyCodec codec of the keys
+     * @param valueCodec codec of the values (null values are not allowed)
+     * @throws IOException if the files can't be read or written
+     */
+    public DurableFTree(Path dir, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException
+    {
+        this(dir, degree, keyCodec, valueCodec, DEFAULT_SYNC_EVERY, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    /**
+     * Opens (or creates) a DurableFTree, recovering the FTree from the checkpoint and the logs in the directory
+     * @param dir directory of the log and checkpoint files
+     * @param degree the degree of the FTree (minimum 2)
+     * @param keyCodec codec of the keys
+     * @param valueCodec codec of the values (null values are not allowed)
+     * @param syncEvery every how many records a writer waits for the log to be on disk (1 means every change is durable when it returns)
+     * @param checkpointEvery every how many records a checkpoint is written
+     * @throws IOException if the files can't be read or written
+     */
+    public DurableFTree(Path dir, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec, int syncEvery, int checkpointEvery) throws IOException
+    {
+        if (syncEvery < 1 || checkpointEvery < 1) throw new IllegalArgumentException("syncEvery and checkpointEvery must be at least 1");
+        this.dir = dir;
+        this.degree = degree;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.syncEvery = syncEvery;
+        this.checkpointEvery = checkpointEvery;
+        recordSize = 1 + keyCodec.size() + valueCodec.size() + 4;
+        pending = ByteBuffer.allocate(64 * recordSize);
+        writing = ByteBuffer.allocate(64 * recordSize);
+
+        Files.createDirectories(dir);
+        recover();
+    }
+
+        /**
+         * Loads the checkpoint, replays the logs written after it and opens a new log
+         */
+        private void recover() throws IOException {
+            long firstLog = 0;
+            Path checkpoint = dir.resolve("checkpoint");
+            if (Files.exists(checkpoint)){
+                firstLog = readCheckpoint(checkpoint);
+            } else {
+                tree = new FTree<>(degree);
+            }
+
+            List<Long> logs = logNumbers();
+            for (long n : logs){
+                if (n < firstLog) Files.delete(logPath(n)); // Already in the checkpoint
+                else replay(logPath(n));
+            }
+            logNumber = logs.isEmpty() ? firstLog : Math.max(firstLog, logs.get(logs.size() - 1) + 1);
+            log = FileChannel.open(logPath(logNumber), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            syncDirectory();
+        }
+
+        /**
+         * Forces the directory to disk, so the files created, renamed and deleted in it survive a crash
+         * (forcing a file only saves its contents, not its name in the directory)
+         */
+        private void syncDirectory() throws IOException {
+            try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)){
+                channel.force(true);
+            }
+        }
+
+        /**
+         * Applies every complete record of a log to the FTree
+         * A record cut in the middle or with a wrong checksum is where the process died, the log is cut there
+         * @param file log file
+         */
+        private void replay(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                ByteBuffer buffer = ByteBuffer.allocate(1024 * recordSize);
+                long position = 0; // End of the last good record
+                boolean torn = false;
+                while (!torn && channel.read(buffer) > 0){
+                    buffer.flip();
+                    int offset = 0;
+                    for (; buffer.limit() - offset >= recordSize; offset += recordSize){
+                        if (!validRecord(buffer, offset)){
+                            torn = true;
+                            break;
+                        }
+                        Key key = keyCodec.read(buffer, offset + 1);
+                        if (buffer.get(offset) == PUT) tree.put(key, valueCodec.read(buffer, offset + 1 + keyCodec.size()));
+                        else tree.delete(key);
+                    }
+                    position += offset;
+                    buffer.position(offset);
+                    buffer.compact(); // Keeps the start of a record cut by the end of the buffer
+                }
+                channel.truncate(position);
+            }
+        }
+
+        private boolean validRecord(ByteBuffer buffer, int offset){
+            byte type = buffer.get(offset);
+            if (type != PUT && type != DELETE) return false;
+            crc.reset();
+            crc.update(buffer.array(), offset, recordSize - 4);
+            return (int) crc.getValue() == buffer.getInt(offset + recordSize - 4);
+        }
+
+        /**
+         * @return the numbers of the log files in the directory in ascending order
+         */
+        private List<Long> logNumbers() throws IOException {
+            List<Long> numbers = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "log.*")){
+                for (Path file : files){
+                    try {
+                        numbers.add(Long.parseLong(file.getFileName().toString().substring(4)));
+                    } catch (NumberFormatException e){
+                        // Not one of our logs
+                    }
+                }
+            }
+            Collections.sort(numbers);
+            return numbers;
+        }
+
+        private Path logPath(long n){
+            return dir.resolve("log." + n);
+        }
+
+    /**
+     * @return the number of keys in the FTree
+     */
+    public synchronized int size()
+    {
+        return tree.size();
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the FTree
+     */
+    public synchronized Value get(Key k)
+    {
+        return tree.get(k);
+    }
+
+    /**
+     * Checks if the key is present in the FTree
+     * @param k key to be checked
+     * @return true if the key is in the FTree, false otherwise
+     */
+    public synchronized boolean contains(Key k)
+    {
+        return tree.contains(k);
+    }
+
+    /**
+     * Takes a read-only view of the FTree for the ordered operations (ranges, rank, select, floor, ceiling...)
+     * @return a snapshot of the FTree
+     */
+    public synchronized FTree<Key, Value> snapshot()
+    {
+        return tree.snapshot();
+    }
+
+    /**
+     * Inserts a key-value pair into the FTree and records it in the log
+     * @param k key to be inserted
+     * @param v value to be inserted (not null)
+     */
+    public void put(Key k, Value v)
+    {
+        if (v == null) throw new NullPointerException("DurableFTree values can't be null");
+        long record;
+        synchronized (this){
+            checkOpen();
+            tree.put(k, v);
+            record = append(PUT, k, v);
+        }
+        afterAppend(record);
+    }
+
+    /**
+     * Removes a key (and its value) from the FTree and records it in the log
+     * @param k key to be removed
+     */
+    public void delete(Key k)
+    {
+        long record;
+        synchronized (this){
+            checkOpen();
+            if (!tree.contains(k)) return;
+            tree.delete(k);
+            record = append(DELETE, k, null);
+        }
+        afterAppend(record);
+    }
+
+        /**
+         * Adds a record to the pending records
+         * @return the number of the record
+         */
+        private long append(byte type, Key key, Value value){
+            if (pending.remaining() < recordSize){
+                ByteBuffer bigger = ByteBuffer.allocate(2 * pending.capacity());
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            int start = pending.position();
+            pending.put(start, type);
+            keyCodec.write(pending, start + 1, key);
+            if (value != null) valueCodec.write(pending, start + 1 + keyCodec.size(), value);
+            else for (int i = 0; i < valueCodec.size(); i++) pending.put(start + 1 + keyCodec.size() + i, (byte) 0);
+            crc.reset();
+            crc.update(pending.array(), start, recordSize - 4);
+            pending.putInt(start + recordSize - 4, (int) crc.getValue());
+            pending.position(start + recordSize);
+            sinceCheckpoint++;
+            return ++appended;
+        }
+
+        /**
+         * Waits for the log to be on disk if it's the turn of this record and starts a background checkpoint if it's time
+         * @param record number of the record
+         */
+        private void afterAppend(long record){
+            try {
+                if (record % syncEvery == 0) sync(record);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            boolean checkpoint;
+            synchronized (this){
+                checkpoint = sinceCheckpoint >= checkpointEvery && !checkpointQueued && !closed;
+                if (checkpoint){
+                    sinceCheckpoint = 0;
+                    checkpointQueued = true;
+                }
+            }
+            if (!checkpoint) return;
+            try {
+                checkpointer.execute(this::backgroundCheckpoint);
+            } catch (RejectedExecutionException e){ // close already stopped the checkpoints
+                synchronized (this){
+                    checkpointQueued = false;
+                }
+            }
+        }
+
+        private void backgroundCheckpoint(){
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e){
+                synchronized (this){
+                    checkpointFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            } finally {
+                synchronized (this){
+                    checkpointQueued = false;
+                }
+            }
+        }
+
+    /**
+     * Writes every record appended so far to the log and waits until it's on disk
+     * @throws IOException if the log can't be written
+     */
+    public void sync() throws IOException
+    {
+        long record;
+        synchronized (this){
+            record = appended;
+        }
+        sync(record);
+    }
+
+        /**
+         * Waits until the record is on disk, the first thread that waits writes every pending record
+         * and the others wait for it (their records are usually in the same write)
+         * @param record number of the record
+         */
+        private void sync(long record) throws IOException {
+            FileChannel channel;
+            long target;
+            synchronized (this){
+                while (true){
+                    if (failure != null) throw failure;
+                    if (durable >= record) return;
+                    if (!syncing) break;
+                    try {
+                        wait();
+                    } catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the log", e);
+                    }
+                }
+                syncing = true;
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                pending.clear();
+                target = appended;
+                channel = log;
+            }
+
+            writeLog(channel, target, false);
+        }
+
+        /**
+         * Writes the records swapped into writing to the log and forces them to disk, without the lock
+         * (the thread has set syncing, so nobody else touches writing or the channel), then wakes up the waiting threads
+         * @param channel log to write
+         * @param target number of the last record in writing
+         * @param close true to close the channel after (it's the log before a checkpoint)
+         */
+        private void writeLog(FileChannel channel, long target, boolean close) throws IOException {
+            IOException error = null;
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) channel.write(writing);
+                channel.force(false);
+                if (close) channel.close();
+            } catch (IOException e){
+                error = e;
+            }
+            synchronized (this){
+                syncing = false;
+                if (error != null) failure = error;
+                else durable = target;
+                notifyAll();
+            }
+            if (error != null) throw error;
+        }
+
+    /**
+     * Writes the FTree to the checkpoint file and deletes the logs it covers, in the calling thread
+     * (the automatic checkpoints every checkpointEvery records call it from a background thread)
+     * The lock is only held to switch to a new log and take a snapshot: the last records of the old log are written
+     * and forced to disk and the FTree is written from the snapshot while the other threads keep reading and writing
+     * @throws IOException if the files can't be written
+     */
+    public void checkpoint() throws IOException
+    {
+        synchronized (checkpointLock){ // Two checkpoints at the same time could delete each other's logs
+            long oldLog = logNumber; // Only changed here, with checkpointLock
+            FileChannel newLog = FileChannel.open(logPath(oldLog + 1), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            try {
+                syncDirectory(); // Records forced to the new log must not be lost with its name
+            } catch (IOException e){
+                newLog.close();
+                throw e;
+            }
+            FileChannel oldChannel;
+            FTree<Key, Value> snapshot;
+            long target;
+            synchronized (this){
+                try {
+                    checkOpen();
+                    while (syncing){ // The log can't be switched in the middle of a write
+                        wait();
+                    }
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    newLog.close();
+                    throw new IOException("Interrupted while waiting for the log", e);
+                } catch (RuntimeException e){
+                    newLog.close();
+                    throw e;
+                }
+                // Takes the place of the thread that syncs, so the pending records go to the old log without the lock
+                syncing = true;
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                pending.clear();
+                target = appended;
+                oldChannel = log;
+                log = newLog;
+                logNumber = oldLog + 1;
+                sinceCheckpoint = 0;
+                snapshot = tree.snapshot();
+            }
+            writeLog(oldChannel, target, true);
+
+            // Everything up to the old log is in the snapshot, the new checkpoint starts at the new log
+            Path temp = dir.resolve("checkpoint.tmp");
+            writeCheckpoint(temp, snapshot, oldLog + 1);
+            Files.move(temp, dir.resolve("checkpoint"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(); // The new checkpoint must be on disk before the logs it replaces are gone
+            for (long n : logNumbers()){
+                if (n <= oldLog) Files.deleteIfExists(logPath(n));
+            }
+        }
+    }
+
+        /**
+         * Writes a checkpoint: magic and number of the first log after it, followed by the snapshot (FTree.writeTo)
+         * @param file file to write
+         * @param snapshot snapshot of the FTree
+         * @param nextLog number of the first log that is not in the checkpoint
+         */
+        private void writeCheckpoint(Path file, FTree<Key, Value> snapshot, long nextLog) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                ByteBuffer header = ByteBuffer.allocate(12);
+                header.putInt(CHECKPOINT_MAGIC).putLong(nextLog).flip();
+                while (header.hasRemaining()) channel.write(header);
+                snapshot.writeTo(channel, keyCodec, valueCodec, true);
+                channel.force(true);
+            }
+        }
+
+        /**
+         * Loads the FTree from a checkpoint (FTree.readFrom builds it bottom-up)
+         * @param file checkpoint file
+         * @return the number of the first log that is not in the checkpoint
+         */
+        private long readCheckpoint(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+                ByteBuffer header = ByteBuffer.allocate(12);
+                while (header.hasRemaining()){
+                    if (channel.read(header) < 0) throw new IOException("Checkpoint file is cut short");
+                }
+                if (header.getInt(0) != CHECKPOINT_MAGIC) throw new IOException("Not a DurableFTree checkpoint");
+                tree = FTree.readFrom(channel, degree, keyCodec, valueCodec);
+                return header.getLong(4);
+            }
+        }
+
+        private void checkOpen(){
+            if (closed) throw new IllegalStateException("The DurableFTree is closed");
+            if (failure != null) throw new UncheckedIOException(failure);
+        }
+
+    /**
+     * Waits for a background checkpoint, writes the pending records and closes the log (the DurableFTree can't be used after)
+     * @throws IOException if the log can't be written or the last background checkpoint failed
+     */
+    public void close() throws IOException
+    {
+        if (closed) return;
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the checkpoint", e);
+        }
+        sync();
+        synchronized (this){
+            closed = true;
+            log.close();
+        }
+        if (checkpointFailure != null) throw checkpointFailure;
+    }
+}
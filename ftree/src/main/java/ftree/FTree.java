@@ -0,0 +1,1917 @@
+package ftree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * FTree
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class FTree<Key extends Comparable<Key>, Value>
+{
+    /**
+     * Fraction of the node capacity filled by build when no fill factor is given,
+     * leaves some room so the first puts after a build don't split every node
+     */
+    public static final double DEFAULT_FILL_FACTOR = 0.75;
+
+    private int g;
+    private Node root;
+    private int TWOxG;
+    private int TWOxG_1;
+    private int g_1;
+    private int generation; // Nodes created before the last snapshot have an older generation and are copied before changing
+    private boolean readOnly; // True for snapshots
+    private Node[] putPath = newPath(8); // Nodes put went through, reused by every put so it doesn't allocate
+    private int[] putIndex = new int[8]; // Index of the child taken in each node of the path
+    private HotKeyCache<Key, Value> hotKeys; // Cache of the most looked up keys for get and contains (null when it's off)
+    private FTreeMetrics metrics; // Counters of the operations (null when the metrics are off)
+    private volatile FTreeMetrics.Snapshot publishedMetrics; // Last metrics published for the MBean (null when they are off)
+
+    /**
+     * Constructor for the FTree
+     * @param degree the degree of the FTree (minimum 2) which determines the number of children each node can have (g children and g-1 keys)
+     * These varyables like TWOxG, TWOxG_1 and g_1 are used to avoid recalculating the same values multiple times
+     */
+    public FTree(int degree)
+    {
+        assert(degree >= 2);
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        root = new Node(true);
+    }
+
+    /**
+     * Node class for the FTree
+     * Each node has fixed capacity arrays of keys, values and children (only internal nodes have children)
+     * and count tells how many keys are in use, entries are shifted with System.arraycopy
+     * Internal nodes also keep offsets: offsets[i] is the number of keys of the subtree that come before the child i,
+     * so rank and select find their place in a node with a binary search instead of adding up the sizes of the children
+     */
+    private class Node {
+        Key[] keys;
+        Value[] values;
+        Node[] children;
+        int[] offsets;
+        int count;
+        int size;
+        int height;
+        int generation;
+    
+        /**
+         * Constructor for the Node
+         * @param leaf true if the node is a leaf (leaves don't need the children array)
+         */
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf){
+            keys = (Key[]) new Comparable[TWOxG_1];
+            values = (Value[]) new Object[TWOxG_1];
+            if (!leaf){
+                children = (Node[]) new FTree.Node[TWOxG];
+                offsets = new int[TWOxG];
+            }
+            height = 0;
+            generation = FTree.this.generation;
+        }
+
+        /**
+         * Copy constructor for the Node (the children are shared, not copied)
+         * @param other Node to be copied
+         */
+        Node(Node other){
+            keys = other.keys.clone();
+            values = other.values.clone();
+            if (!other.isLeaf()){
+                children = other.children.clone();
+                offsets = other.offsets.clone();
+            }
+            count = other.count;
+            size = other.size;
+            height = other.height;
+            generation = FTree.this.generation;
+        }
+    
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == TWOxG_1;
+        }
+
+        boolean isEmpty(){
+            return count == 0;
+        }
+    }
+
+    /**
+     * @return the number of keys in the FTree
+     */
+    public int size() 
+	{
+		return root.size;
+    }
+
+        /**
+         * Calculates the size (and the offsets) of a node again from the sizes of its children
+         * @param n Node to be updated
+         */
+        private void updateSize(Node n){
+            if (n == null) return;
+        
+            int size = n.count;
+            if (!n.isLeaf()){
+                for (int i = 0; i <= n.count; i++){
+                    n.offsets[i] = size - n.count + i;
+                    size += n.children[i].size;
+                }
+            }
+            n.size = size;
+        }
+
+        /**
+         * Updates the size and the offsets of a node after the size of one of its children changed
+         * @param n Node to be updated
+         * @param i index of the child that changed
+         * @param delta number of keys added to the child (negative if they were removed)
+         */
+        private void childResized(Node n, int i, int delta){
+            n.size += delta;
+            for (int j = i + 1; j <= n.count; j++) n.offsets[j] += delta;
+        }
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return the number of keys in the FTree between min and max (inclusive)
+     */
+    public int size(Key min, Key max){
+        if (min.compareTo(max) > 0) return 0;
+        if (metrics != null) metrics.searches++;
+
+        // Goes down while min and max are in the same child, the keys before that child count for both so they cancel out
+        Node node = root;
+        while (!node.isLeaf()){
+            int i = binarySearch(node, min);
+            if (i != binarySearch(node, max) || (i < node.count && max.compareTo(node.keys[i]) == 0)) break;
+            node = node.children[i];
+        }
+        return rank(node, max, true) - rank(node, min, false);
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the FTree
+     */
+    public int height()
+    {
+		return root.height;
+    }
+
+        /**
+         * @param node Node to calculate the height from
+         * @return the height of the node strarting from a given node
+         */
+        @SuppressWarnings("unused")
+        private int height(Node node){
+            if (node.isLeaf()) return 0;
+            return 1 + height(node.children[0]);
+        }
+
+    /**
+     * Checks if the key is present in the FTree (a key with a null value is present too)
+     * @param k key to be checked
+     * @return true if the key is in the FTree, false otherwise
+     */
+    public boolean contains(Key k) 
+	{
+        if (metrics == null) return containsKey(k);
+        metrics.searches++;
+        long start = System.nanoTime();
+        boolean found = containsKey(k);
+        record(metrics.get, start);
+        return found;
+    }
+
+        private boolean containsKey(Key k){
+            if (hotKeys != null && hotKeys.find(k) >= 0) return true;
+            Node n = root;
+            while (true){
+                int i = binarySearch(n, k);
+                if (i < n.count && k.compareTo(n.keys[i]) == 0){
+                    if (hotKeys != null) hotKeys.admit(k, n.values[i]);
+                    return true;
+                }
+                if (n.isLeaf()) return false;
+                n = n.children[i];
+            }
+        }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key
+     */
+    public Value get(Key k) 
+	{
+        if (metrics == null) return getValue(k);
+        metrics.searches++;
+        long start = System.nanoTime();
+        Value v = getValue(k);
+        record(metrics.get, start);
+        return v;
+    }
+
+        private Value getValue(Key k){
+            if (hotKeys != null){
+                int slot = hotKeys.find(k);
+                if (slot >= 0) return hotKeys.value(slot);
+            }
+            Node n = root;
+            while (true){
+                int i = binarySearch(n, k);
+                if (i < n.count && k.compareTo(n.keys[i]) == 0){ // Checks if the key is in this node
+                    if (hotKeys != null) hotKeys.admit(k, n.values[i]);
+                    return n.values[i];
+                }
+                if (n.isLeaf()) return null;
+                n = n.children[i]; // If the key is not in this node, we go to the child where it could be
+            }
+        }
+
+    /**
+     * Puts a cache of the most looked up keys in front of get and contains, or removes it
+     * A hit skips the descent from the root, put and delete keep the cache up to date
+     * The keys must have a hashCode consistent with compareTo, and get and contains change the cache
+     * so they can't be called by several threads at the same time (snapshots can't have a cache)
+     * @param capacity number of keys the cache holds (rounded up to a power of 2), 0 to remove it
+     */
+    public void setHotKeyCache(int capacity)
+    {
+        checkWritable();
+        if (capacity < 0) throw new IllegalArgumentException("The capacity can't be negative: " + capacity);
+        hotKeys = capacity == 0 ? null : new HotKeyCache<>(capacity);
+    }
+
+    /**
+     * @return the number of get and contains calls answered by the hot key cache (0 if there is no cache)
+     */
+    public long hotKeyHits()
+    {
+        return hotKeys == null ? 0 : hotKeys.hits();
+    }
+
+    /**
+     * @return the number of get and contains calls that went down the FTree with the hot key cache on
+     */
+    public long hotKeyMisses()
+    {
+        return hotKeys == null ? 0 : hotKeys.misses();
+    }
+
+    /**
+     * Turns the metrics of the FTree on (from zero) or off
+     * With them on every get, contains, put, range, rank and select is timed and the splits and the comparisons
+     * are counted, with them off the only cost is checking that they are off
+     * Like get and contains, the metrics can't be used by several threads at the same time (snapshots can't have them)
+     * @param on true to turn them on
+     */
+    public void setMetrics(boolean on)
+    {
+        checkWritable();
+        if (!on){
+            metrics = null;
+            publishedMetrics = null;
+            return;
+        }
+        metrics = new FTreeMetrics();
+        metrics();
+    }
+
+    /**
+     * Takes a snapshot of the metrics, walking the FTree to measure its nodes, and publishes it for the MBean
+     * It must be called by the thread that changes the FTree
+     * @return the metrics, or null if they are off
+     */
+    public FTreeMetrics.Snapshot metrics()
+    {
+        if (metrics == null) return null;
+        metrics.shape = shape();
+        publishMetrics(System.nanoTime());
+        return publishedMetrics;
+    }
+
+    /**
+     * Registers an MBean with the metrics in the platform MBean server, as ftree:type=FTree,name=[name]
+     * The counters belong to the thread that changes the FTree, so the MBean doesn't read them: it shows the last
+     * snapshot that thread published, at most FTreeMetrics.PUBLISH_NANOS older than its last timed operation
+     * (and the nodes, fill factors and heap of the last call to metrics), all zero when the metrics are off
+     * @param name name of the FTree in the MBean server
+     * @return the name of the MBean (to unregister it)
+     * @throws JMException if the name is not valid or is already registered
+     */
+    public ObjectName registerMBean(String name) throws JMException
+    {
+        ObjectName objectName = new ObjectName("ftree:type=FTree,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), objectName);
+        return objectName;
+    }
+
+        /**
+         * Walks every node of the FTree to measure its shape
+         * The heap is estimated with compressed references: 48 bytes for a node plus its arrays
+         */
+        private FTreeMetrics.Shape shape(){
+            long[] fillCounts = FTreeMetrics.newFillCounts();
+            long nodes = 0;
+            long heapBytes = 0;
+            double fillSum = 0;
+            long keysArray = arrayBytes(TWOxG_1);
+            long childrenArray = arrayBytes(TWOxG);
+            Queue<Node> queue = new LinkedList<>();
+            queue.add(root);
+            while (!queue.isEmpty()){
+                Node n = queue.remove();
+                double fill = (double) n.count / TWOxG_1;
+                fillCounts[FTreeMetrics.fillBucket(fill)]++;
+                fillSum += fill;
+                nodes++;
+                heapBytes += 48 + 2 * keysArray; // The node, its keys and its values
+                if (!n.isLeaf()){
+                    heapBytes += 2 * childrenArray; // Its children and offsets
+                    for (int i = 0; i <= n.count; i++) queue.add(n.children[i]);
+                }
+            }
+            return new FTreeMetrics.Shape(nodes, fillCounts, fillSum, heapBytes);
+        }
+
+        /**
+         * Records the latency of an operation that began at start and publishes the metrics when the last ones are old
+         */
+        private void record(FTreeMetrics.Histogram histogram, long start){
+            long now = System.nanoTime();
+            histogram.record(now - start);
+            if (now - metrics.publishedAt >= FTreeMetrics.PUBLISH_NANOS) publishMetrics(now);
+        }
+
+        private void publishMetrics(long now){
+            metrics.publishedAt = now;
+            publishedMetrics = metrics.snapshot(root.height, root.size);
+        }
+
+        /**
+         * @return the bytes of an array of references or ints (16 bytes of header, aligned to 8 bytes)
+         */
+        private static long arrayBytes(int length){
+            return (16 + 4L * length + 7) & ~7L;
+        }
+
+    /**
+     * MBean of the metrics, it reads the last snapshot published by the thread that changes the FTree
+     */
+    private class MetricsBean implements FTreeMetricsMXBean {
+        private FTreeMetrics.Snapshot now(){
+            FTreeMetrics.Snapshot s = publishedMetrics;
+            return s == null ? FTreeMetrics.NONE : s;
+        }
+
+        public FTreeMetrics.Latency getGet(){ return now().getGet(); }
+        public FTreeMetrics.Latency getPut(){ return now().getPut(); }
+        public FTreeMetrics.Latency getRange(){ return now().getRange(); }
+        public FTreeMetrics.Latency getRank(){ return now().getRank(); }
+        public FTreeMetrics.Latency getSelect(){ return now().getSelect(); }
+        public long getRangeKeys(){ return now().getRangeKeys(); }
+        public long getSplits(){ return now().getSplits(); }
+        public long getComparisons(){ return now().getComparisons(); }
+        public long getSearches(){ return now().getSearches(); }
+        public double getComparisonsPerOperation(){ return now().getComparisonsPerOperation(); }
+        public int getHeight(){ return now().getHeight(); }
+        public int getSize(){ return now().getSize(); }
+        public long getNodes(){ return now().getNodes(); }
+        public double[] getFillFactors(){ return now().getFillFactors(); }
+        public double getAverageFillFactor(){ return now().getAverageFillFactor(); }
+        public long getEstimatedHeapBytes(){ return now().getEstimatedHeapBytes(); }
+    }
+    
+    /**
+     * Inserts a key-value pair into the FTree
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    public void put(Key k, Value v)
+    {
+        long start = metrics == null ? 0 : System.nanoTime();
+        checkWritable();
+        if (metrics != null) metrics.searches++;
+        if (hotKeys != null) hotKeys.update(k, v);
+        root = writableRoot();
+        if (root.isFull()) growRoot();
+        if (putPath.length <= root.height){
+            putPath = newPath(2 * root.height + 1);
+            putIndex = new int[putPath.length];
+        }
+
+        // Goes down splitting the full children before entering them, so there is always room for the key
+        Node node = root;
+        int depth = 0;
+        while (true){
+            int i = binarySearch(node, k);
+
+            // Checks if the key is already in the node (an overwrite touches no counter)
+            if (i < node.count && k.compareTo(node.keys[i]) == 0){
+                node.values[i] = v;
+                clearPath(depth);
+                if (metrics != null) record(metrics.put, start);
+                return;
+            }
+            if (node.isLeaf()){
+                System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+                System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+                node.keys[i] = k;
+                node.values[i] = v;
+                node.count++;
+                node.size++;
+                break;
+            }
+            if (writable(node, i).isFull()){
+                split(node, i);
+                // Checks if the key is in the new node after the split
+                int cmp = k.compareTo(node.keys[i]);
+                if (cmp == 0){
+                    node.values[i] = v;
+                    clearPath(depth);
+                    if (metrics != null) record(metrics.put, start);
+                    return;
+                }
+                else if (cmp > 0) i++;
+            }
+            putPath[depth] = node;
+            putIndex[depth] = i;
+            depth++;
+            node = node.children[i];
+        }
+
+        // The key is new, so every node on the path has one more key (the heights only change in growRoot)
+        for (int d = depth - 1; d >= 0; d--) childResized(putPath[d], putIndex[d], 1);
+        clearPath(depth);
+        if (metrics != null) record(metrics.put, start);
+    }
+
+        /**
+         * @param length length of the path
+         * @return an empty path for put
+         */
+        @SuppressWarnings("unchecked")
+        private Node[] newPath(int length){
+            return (Node[]) new FTree.Node[length];
+        }
+
+        /**
+         * Drops the references of the path of put so it doesn't keep removed nodes alive
+         * @param depth number of nodes in the path
+         */
+        private void clearPath(int depth){
+            Arrays.fill(putPath, 0, depth, null);
+        }
+
+        /**
+         * Splits the full root under a new root (the only way the FTree gets taller)
+         */
+        private void growRoot(){
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.size = root.size;
+            newRoot.height = root.height + 1;
+            split(newRoot, 0);
+            root = newRoot;
+        }
+
+        /**
+         * Splits a node in two
+         * @param parent Node that is the parent of the node to be split
+         * @param index index of the node to be split
+         */
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            if (metrics != null) metrics.splits++;
+            Node newNode = new Node(splitNode.isLeaf()); // Node to be created where the second half of the splitNode will be
+
+            // Moves the middle entry of the splitNode to the parent
+            int moved = parent.count - index;
+            System.arraycopy(parent.keys, index, parent.keys, index + 1, moved);
+            System.arraycopy(parent.values, index, parent.values, index + 1, moved);
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            System.arraycopy(parent.offsets, index + 1, parent.offsets, index + 2, moved); // The keys before them didn't change
+            parent.keys[index] = splitNode.keys[g_1];
+            parent.values[index] = splitNode.values[g_1];
+            parent.children[index + 1] = newNode;
+            parent.count++;
+
+            // Moves the second half of the splitNode to the newNode
+            System.arraycopy(splitNode.keys, g, newNode.keys, 0, g_1);
+            System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+            if (!splitNode.isLeaf()){
+                System.arraycopy(splitNode.children, g, newNode.children, 0, g);
+                Arrays.fill(splitNode.children, g, TWOxG, null);
+            }
+            Arrays.fill(splitNode.keys, g_1, TWOxG_1, null); // Clears the moved references so they can be collected
+            Arrays.fill(splitNode.values, g_1, TWOxG_1, null);
+            splitNode.count = g_1;
+            newNode.count = g_1;
+            newNode.height = splitNode.height;
+
+            // Updates the sizes of the nodes
+            if(splitNode.isLeaf()){
+                splitNode.size = g_1;
+                newNode.size = g_1;
+            }
+            else{
+                updateSize(splitNode); 
+                updateSize(newNode);
+            }
+            parent.offsets[index + 1] = parent.offsets[index] + splitNode.size + 1;
+        }
+
+    /**
+     * Removes a key (and its value) from the FTree, does nothing if the key is not there
+     * It goes down only once: before entering a child with g-1 keys it borrows a key from a sibling or merges it
+     * with one (the opposite of the split done by put), so the key can always be removed without going back up
+     * @param k key to be removed
+     */
+    public void delete(Key k)
+    {
+        checkWritable();
+        if (root.isEmpty()) return;
+        if (metrics != null) metrics.searches++;
+        if (hotKeys != null) hotKeys.remove(k);
+        root = writableRoot();
+        delete(root, k);
+        shrinkRoot();
+    }
+
+    /**
+     * Removes the smallest key (and its value) from the FTree
+     */
+    public void deleteMin()
+    {
+        checkWritable();
+        if (root.isEmpty()) return;
+        if (hotKeys != null) hotKeys.remove(min());
+        root = writableRoot();
+        deleteMin(root);
+        shrinkRoot();
+    }
+
+    /**
+     * Removes the biggest key (and its value) from the FTree
+     */
+    public void deleteMax()
+    {
+        checkWritable();
+        if (root.isEmpty()) return;
+        if (hotKeys != null) hotKeys.remove(max());
+        root = writableRoot();
+        deleteMax(root);
+        shrinkRoot();
+    }
+
+        /**
+         * Removes a key from the subtree of a given node
+         * @param node Node to remove the key from (the root or a node with at least g keys)
+         * @param k key to be removed
+         * @return true if the key was removed, false if it was not in the subtree
+         */
+        private boolean delete(Node node, Key k){
+            int i = binarySearch(node, k);
+
+            if (i < node.count && k.compareTo(node.keys[i]) == 0){ // The key is in this node
+                if (node.isLeaf()){
+                    removeFromLeaf(node, i);
+                    return true;
+                }
+                Node left = node.children[i];
+                Node right = node.children[i + 1];
+                if (left.count > g_1){ // Replaces the key with its predecessor and removes the predecessor
+                    left = writable(node, i);
+                    Node n = left;
+                    while (!n.isLeaf()) n = n.children[n.count];
+                    node.keys[i] = n.keys[n.count - 1];
+                    node.values[i] = n.values[n.count - 1];
+                    deleteMax(left);
+                    childResized(node, i, -1);
+                } else if (right.count > g_1){ // Replaces the key with its successor and removes the successor
+                    right = writable(node, i + 1);
+                    Node n = right;
+                    while (!n.isLeaf()) n = n.children[0];
+                    node.keys[i] = n.keys[0];
+                    node.values[i] = n.values[0];
+                    deleteMin(right);
+                    childResized(node, i + 1, -1);
+                } else { // Both children have g-1 keys, so the key goes down to the merged child
+                    merge(node, i);
+                    delete(node.children[i], k);
+                    childResized(node, i, -1);
+                }
+                return true;
+            }
+            if (node.isLeaf()) return false;
+
+            i = fillChild(node, i);
+            boolean removed = delete(node.children[i], k);
+            if (removed) childResized(node, i, -1);
+            return removed;
+        }
+
+        /**
+         * Removes the smallest key from the subtree of a given node
+         * @param node Node to remove the key from (the root or a node with at least g keys)
+         */
+        private void deleteMin(Node node){
+            if (node.isLeaf()){
+                removeFromLeaf(node, 0);
+                return;
+            }
+            int i = fillChild(node, 0);
+            deleteMin(node.children[i]);
+            childResized(node, i, -1);
+        }
+
+        /**
+         * Removes the biggest key from the subtree of a given node
+         * @param node Node to remove the key from (the root or a node with at least g keys)
+         */
+        private void deleteMax(Node node){
+            if (node.isLeaf()){
+                removeFromLeaf(node, node.count - 1);
+                return;
+            }
+            int i = fillChild(node, node.count);
+            deleteMax(node.children[i]);
+            childResized(node, i, -1);
+        }
+
+        /**
+         * Removes the entry at index i from a leaf
+         * @param node leaf to remove the entry from
+         * @param i index of the entry
+         */
+        private void removeFromLeaf(Node node, int i){
+            System.arraycopy(node.keys, i + 1, node.keys, i, node.count - i - 1);
+            System.arraycopy(node.values, i + 1, node.values, i, node.count - i - 1);
+            node.count--;
+            node.keys[node.count] = null; // Clears the reference so it can be collected
+            node.values[node.count] = null;
+            node.size--;
+        }
+
+        /**
+         * Makes sure the child i of a node has at least g keys before going down to it,
+         * by borrowing a key from one of its siblings or, if both siblings have g-1 keys, by merging it with one
+         * @param node parent of the child (the root or a node with at least g keys)
+         * @param i index of the child
+         * @return the index of the child to go down to (after a merge with the left sibling it's i-1)
+         */
+        private int fillChild(Node node, int i){
+            Node child = writable(node, i);
+            if (child.count > g_1) return i;
+
+            if (i > 0 && node.children[i - 1].count > g_1){
+                borrowFromLeft(node, i);
+            } else if (i < node.count && node.children[i + 1].count > g_1){
+                borrowFromRight(node, i);
+            } else if (i < node.count){
+                merge(node, i);
+            } else {
+                merge(node, i - 1);
+                return i - 1;
+            }
+            return i;
+        }
+
+        /**
+         * Moves the key i-1 of a node down to the front of its child i and the last key of the child i-1 up to its place
+         * (the last child of the child i-1 becomes the first child of the child i)
+         * @param node parent of the children
+         * @param i index of the child that receives the key
+         */
+        private void borrowFromLeft(Node node, int i){
+            Node child = writable(node, i);
+            Node left = writable(node, i - 1);
+
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            System.arraycopy(child.values, 0, child.values, 1, child.count);
+            child.keys[0] = node.keys[i - 1];
+            child.values[0] = node.values[i - 1];
+            node.keys[i - 1] = left.keys[left.count - 1];
+            node.values[i - 1] = left.values[left.count - 1];
+            left.keys[left.count - 1] = null;
+            left.values[left.count - 1] = null;
+
+            int moved = 1;
+            if (!child.isLeaf()){
+                System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+                child.children[0] = left.children[left.count];
+                left.children[left.count] = null;
+                moved += child.children[0].size;
+            }
+            child.count++;
+            left.count--;
+            child.size += moved;
+            left.size -= moved;
+            if (!child.isLeaf()) updateSize(child);
+            node.offsets[i] -= moved;
+        }
+
+        /**
+         * Moves the key i of a node down to the end of its child i and the first key of the child i+1 up to its place
+         * (the first child of the child i+1 becomes the last child of the child i)
+         * @param node parent of the children
+         * @param i index of the child that receives the key
+         */
+        private void borrowFromRight(Node node, int i){
+            Node child = writable(node, i);
+            Node right = writable(node, i + 1);
+
+            child.keys[child.count] = node.keys[i];
+            child.values[child.count] = node.values[i];
+            node.keys[i] = right.keys[0];
+            node.values[i] = right.values[0];
+
+            int moved = 1;
+            if (!child.isLeaf()){
+                child.children[child.count + 1] = right.children[0];
+                moved += right.children[0].size;
+                System.arraycopy(right.children, 1, right.children, 0, right.count);
+                right.children[right.count] = null;
+            }
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            System.arraycopy(right.values, 1, right.values, 0, right.count - 1);
+            right.count--;
+            right.keys[right.count] = null;
+            right.values[right.count] = null;
+            child.count++;
+            child.size += moved;
+            right.size -= moved;
+            if (!child.isLeaf()){
+                child.offsets[child.count] = child.size - moved + 1; // Every key the child had comes before the new last child
+                updateSize(right);
+            }
+            node.offsets[i + 1] += moved;
+        }
+
+        /**
+         * Merges the children i and i+1 of a node together with the key i between them into the child i
+         * @param node parent of the children
+         * @param i index of the key that goes down
+         */
+        private void merge(Node node, int i){
+            Node left = writable(node, i);
+            Node right = node.children[i + 1]; // Only read, it's dropped after the merge
+
+            left.keys[left.count] = node.keys[i];
+            left.values[left.count] = node.values[i];
+            System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+            System.arraycopy(right.values, 0, left.values, left.count + 1, right.count);
+            if (!left.isLeaf()){
+                System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+            }
+            left.count += right.count + 1;
+            left.size += right.size + 1;
+            if (!left.isLeaf()) updateSize(left);
+
+            // Removes the key i and the child i+1 from the node
+            System.arraycopy(node.keys, i + 1, node.keys, i, node.count - i - 1);
+            System.arraycopy(node.values, i + 1, node.values, i, node.count - i - 1);
+            System.arraycopy(node.children, i + 2, node.children, i + 1, node.count - i - 1);
+            System.arraycopy(node.offsets, i + 2, node.offsets, i + 1, node.count - i - 1); // The keys before them didn't change
+            node.count--;
+            node.keys[node.count] = null;
+            node.values[node.count] = null;
+            node.children[node.count + 1] = null;
+        }
+
+        /**
+         * Makes the only child of the root the new root when the root ran out of keys (the FTree gets shorter)
+         */
+        private void shrinkRoot(){
+            while (root.isEmpty() && !root.isLeaf()){
+                root = root.children[0];
+            }
+        }
+
+    /**
+     * Takes a read-only, point-in-time view of the FTree in O(1)
+     * The snapshot shares every node with the FTree, after it's taken the FTree copies a node before changing it
+     * (only the nodes on the path of each put/delete, the rest stay shared) so the snapshot never sees a change
+     * and a dropped snapshot is collected with the nodes only it still uses
+     * It must be taken by the thread that changes the FTree, then it can be read by any number of threads
+     * @return a snapshot of the FTree (put and delete on it throw UnsupportedOperationException)
+     */
+    public FTree<Key, Value> snapshot()
+    {
+        if (readOnly) return this;
+        FTree<Key, Value> snapshot = new FTree<>(g);
+        snapshot.root = root;
+        snapshot.readOnly = true;
+        generation++; // Every node that exists now is shared with the snapshot
+        return snapshot;
+    }
+
+        /**
+         * @throws UnsupportedOperationException if the FTree is a snapshot
+         */
+        private void checkWritable(){
+            if (readOnly) throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        /**
+         * @return the root, copied first if it's shared with a snapshot
+         */
+        private Node writableRoot(){
+            if (root.generation != generation) root = new Node(root);
+            return root;
+        }
+
+        /**
+         * Gets the child i of a node so it can be changed, copying it first if it's shared with a snapshot
+         * @param parent Node that can already be changed
+         * @param i index of the child
+         * @return the child that can be changed
+         */
+        private Node writable(Node parent, int i){
+            Node child = parent.children[i];
+            if (child.generation != generation){
+                child = new Node(child);
+                parent.children[i] = child;
+            }
+            return child;
+        }
+
+    /**
+     * Inserts a batch of key-value pairs into the FTree
+     * The batch is sorted with QuickSort and inserted in a single walk of the FTree, so keys that go to the same subtree
+     * share the descent and the size of every touched node is fixed once, not once per key
+     * If a key appears more than once the last value wins, the same as calling put in the order of the arrays
+     * @param keys keys to be inserted
+     * @param values values of the keys (values[i] is the value of keys[i])
+     */
+    public void putAll(Key[] keys, Value[] values)
+    {
+        checkWritable();
+        if (keys.length != values.length) throw new IllegalArgumentException("There must be one value for each key");
+        Entry<Key, Value>[] batch = sortedBatch(keys, values);
+
+        // Removes the repeated keys, the sort keeps them in the order they were given so the last one wins
+        int n = 0;
+        for (int i = 0; i < batch.length; i++){
+            if (n > 0 && batch[i].key.compareTo(batch[n - 1].key) == 0) batch[n - 1] = batch[i];
+            else batch[n++] = batch[i];
+        }
+        if (hotKeys != null){
+            for (int i = 0; i < n; i++) hotKeys.update(batch[i].key, batch[i].value);
+        }
+        if (metrics != null) metrics.searches += n;
+
+        int next = 0;
+        root = writableRoot();
+        while (next < n){
+            if (root.isFull()) growRoot();
+            next = putAll(root, batch, next, n);
+        }
+    }
+
+        /**
+         * Inserts the pairs batch[lo..hi[ (sorted and without repeated keys) that belong to the subtree of the node
+         * It stops early if the node gets full and there are still keys to insert, so the parent can split it first
+         * @param node Node to insert the pairs (not full)
+         * @param batch sorted pairs
+         * @param lo index of the first pair to insert
+         * @param hi index after the last pair to insert
+         * @return the index of the first pair that was not inserted
+         */
+        private int putAll(Node node, Entry<Key, Value>[] batch, int lo, int hi){
+            while (lo < hi){
+                Key key = batch[lo].key;
+                int i = binarySearch(node, key);
+
+                // Checks if the key is already in the node
+                if (i < node.count && key.compareTo(node.keys[i]) == 0){
+                    node.values[i] = batch[lo++].value;
+                    continue;
+                }
+                if (node.isLeaf()){
+                    if (node.isFull()) break;
+                    System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+                    System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+                    node.keys[i] = key;
+                    node.values[i] = batch[lo++].value;
+                    node.count++;
+                    continue;
+                }
+                if (writable(node, i).isFull()){
+                    if (node.isFull()) break;
+                    split(node, i);
+                    continue; // The key is compared again with the key that went up
+                }
+                // Every pair smaller than the key i goes to the child i in the same descent
+                int end = (i < node.count) ? lowerBound(batch, lo, hi, node.keys[i]) : hi;
+                lo = putAll(node.children[i], batch, lo, end);
+            }
+            updateSize(node);
+            return lo;
+        }
+
+    /**
+     * Gets the values of a batch of keys
+     * The batch is sorted with QuickSort and looked up in a single walk of the FTree, so keys that go to the same subtree
+     * share the descent
+     * @param keys keys to get the value of
+     * @param values array where the values are written (values[i] is the value of keys[i] or null if keys[i] is not in the FTree)
+     */
+    public void getAll(Key[] keys, Value[] values)
+    {
+        if (keys.length > values.length) throw new IllegalArgumentException("There must be room for the value of each key");
+        Entry<Key, Value>[] batch = sortedBatch(keys, null);
+        if (metrics != null) metrics.searches += batch.length;
+        getAll(root, batch, 0, batch.length, values);
+    }
+
+        /**
+         * Gets the values of the keys batch[lo..hi[ (sorted) from the subtree of the node
+         * @param node Node to get the values from
+         * @param batch sorted keys with their position in the original array
+         * @param lo index of the first key
+         * @param hi index after the last key
+         * @param values array where the values are written
+         */
+        private void getAll(Node node, Entry<Key, Value>[] batch, int lo, int hi, Value[] values){
+            while (lo < hi){
+                Key key = batch[lo].key;
+                int i = binarySearch(node, key);
+
+                if (i < node.count && key.compareTo(node.keys[i]) == 0){ // Checks if the key is in this node
+                    values[batch[lo++].position] = node.values[i];
+                } else if (node.isLeaf()){
+                    values[batch[lo++].position] = null;
+                } else { // Every key smaller than the key i goes to the child i in the same descent
+                    int end = (i < node.count) ? lowerBound(batch, lo, hi, node.keys[i]) : hi;
+                    getAll(node.children[i], batch, lo, end, values);
+                    lo = end;
+                }
+            }
+        }
+
+        /**
+         * Pairs the keys with their values and position and sorts them with QuickSort (the position breaks ties)
+         * @param keys keys of the batch
+         * @param values values of the batch (null if there are no values)
+         * @return the sorted pairs
+         */
+        @SuppressWarnings("unchecked")
+        private Entry<Key, Value>[] sortedBatch(Key[] keys, Value[] values){
+            Entry<Key, Value>[] batch = (Entry<Key, Value>[]) new Entry[keys.length];
+            for (int i = 0; i < keys.length; i++){
+                batch[i] = new Entry<>(keys[i], values == null ? null : values[i], i);
+            }
+            QuickSort.sort(batch);
+            return batch;
+        }
+
+        /**
+         * Binary search in the sorted batch
+         * @param batch sorted pairs
+         * @param lo index of the first pair to search
+         * @param hi index after the last pair to search
+         * @param k key to search
+         * @return the index of the first pair in batch[lo..hi[ with a key greater than or equal to k (hi if there is none)
+         */
+        private int lowerBound(Entry<Key, Value>[] batch, int lo, int hi, Key k){
+            while (lo < hi){
+                int mid = (lo + hi) >>> 1;
+                if (batch[mid].key.compareTo(k) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+    /**
+     * Builds an FTree from key-value pairs in one bottom-up pass instead of calling put for every key
+     * The nodes are packed with DEFAULT_FILL_FACTOR of their capacity
+     * @param degree the degree of the FTree (minimum 2)
+     * @param keys keys to be inserted (sorted with QuickSort first if they are not in order)
+     * @param values values of the keys (values[i] is the value of keys[i])
+     * @return a new FTree with all the key-value pairs
+     */
+    public static <Key extends Comparable<Key>, Value> FTree<Key, Value> build(int degree, Key[] keys, Value[] values)
+    {
+        return build(degree, keys, values, DEFAULT_FILL_FACTOR);
+    }
+
+    /**
+     * Builds an FTree from key-value pairs in one bottom-up pass instead of calling put for every key
+     * If a key appears more than once the last value wins, the same as calling put in the order of the arrays
+     * The arrays given are not modified
+     * @param degree the degree of the FTree (minimum 2)
+     * @param keys keys to be inserted (sorted with QuickSort first if they are not in order)
+     * @param values values of the keys (values[i] is the value of keys[i])
+     * @param fillFactor fraction of the node capacity to fill, between 0 (exclusive) and 1, it's raised if needed so every node has at least g-1 keys
+     * @return a new FTree with all the key-value pairs
+     */
+    @SuppressWarnings("unchecked")
+    public static <Key extends Comparable<Key>, Value> FTree<Key, Value> build(int degree, Key[] keys, Value[] values, double fillFactor)
+    {
+        if (keys.length != values.length) throw new IllegalArgumentException("There must be one value for each key");
+        Key[] k = keys.clone();
+        Value[] v = values.clone();
+        if (!Sort.isSorted(k)){
+            // Sorts the pairs together, ties are broken by position so the last duplicate stays the last one
+            Entry<Key, Value>[] entries = (Entry<Key, Value>[]) new Entry[k.length];
+            for (int i = 0; i < k.length; i++) entries[i] = new Entry<>(k[i], v[i], i);
+            QuickSort.sort(entries);
+            for (int i = 0; i < k.length; i++){
+                k[i] = entries[i].key;
+                v[i] = entries[i].value;
+            }
+        }
+        return buildSorted(degree, k, v, k.length, fillFactor);
+    }
+
+    /**
+     * Builds an FTree from key-value pairs that are already sorted by key (in one bottom-up pass)
+     * If a key appears more than once in a row the last value wins, the same as calling put in that order
+     * @param degree the degree of the FTree (minimum 2)
+     * @param keys keys in ascending order
+     * @param values values of the keys (given in the same order as the keys)
+     * @param fillFactor fraction of the node capacity to fill, between 0 (exclusive) and 1
+     * @return a new FTree with all the key-value pairs
+     * @throws IllegalArgumentException if the keys are not sorted or there are more keys than values (or the opposite)
+     */
+    @SuppressWarnings("unchecked")
+    public static <Key extends Comparable<Key>, Value> FTree<Key, Value> build(int degree, Iterator<Key> keys, Iterator<Value> values, double fillFactor)
+    {
+        Key[] k = (Key[]) new Comparable[16];
+        Value[] v = (Value[]) new Object[16];
+        int n = 0;
+        while (keys.hasNext()){
+            if (!values.hasNext()) throw new IllegalArgumentException("There must be one value for each key");
+            if (n == k.length){
+                k = Arrays.copyOf(k, 2 * n);
+                v = Arrays.copyOf(v, 2 * n);
+            }
+            k[n] = keys.next();
+            v[n] = values.next();
+            if (n > 0 && k[n].compareTo(k[n - 1]) < 0) throw new IllegalArgumentException("The keys must be sorted");
+            n++;
+        }
+        if (values.hasNext()) throw new IllegalArgumentException("There must be one value for each key");
+        return buildSorted(degree, k, v, n, fillFactor);
+    }
+
+        /**
+         * Key-value pair used to sort the input of build
+         */
+        private static class Entry<Key extends Comparable<Key>, Value> implements Comparable<Entry<Key, Value>> {
+            final Key key;
+            final Value value;
+            final int position;
+
+            Entry(Key key, Value value, int position){
+                this.key = key;
+                this.value = value;
+                this.position = position;
+            }
+
+            public int compareTo(Entry<Key, Value> other){
+                int cmp = key.compareTo(other.key);
+                return cmp != 0 ? cmp : Integer.compare(position, other.position);
+            }
+        }
+
+        /**
+         * Removes the repeated keys (keeping the last value) and builds the FTree from the sorted arrays
+         * @param degree the degree of the FTree
+         * @param keys sorted keys (only the first n are used and they can be overwritten)
+         * @param values values of the keys (only the first n are used and they can be overwritten)
+         * @param n number of pairs
+         * @param fillFactor fraction of the node capacity to fill
+         * @return a new FTree with all the key-value pairs
+         */
+        private static <Key extends Comparable<Key>, Value> FTree<Key, Value> buildSorted(int degree, Key[] keys, Value[] values, int n, double fillFactor)
+        {
+            if (!(fillFactor > 0 && fillFactor <= 1)) throw new IllegalArgumentException("The fill factor must be in ]0, 1]");
+            int unique = 0;
+            for (int i = 0; i < n; i++){
+                if (unique > 0 && keys[i].compareTo(keys[unique - 1]) == 0){
+                    values[unique - 1] = values[i]; // Same key as the previous one, the last value wins
+                } else {
+                    keys[unique] = keys[i];
+                    values[unique] = values[i];
+                    unique++;
+                }
+            }
+
+            FTree<Key, Value> tree = new FTree<>(degree);
+            if (unique > 0) tree.root = tree.new Builder(new ArrayPairs<>(keys, values), fillFactor).build(unique);
+            return tree;
+        }
+
+        /**
+         * Where the Builder takes the pairs from, in ascending order of the keys
+         */
+        private interface PairSource<Key, Value> {
+            /**
+             * Copies the next n pairs to the arrays of a node
+             * @param keys keys of the node
+             * @param values values of the node
+             * @param offset position of the first pair in the node
+             * @param n number of pairs
+             */
+            void read(Key[] keys, Value[] values, int offset, int n);
+        }
+
+        /**
+         * Pairs taken from sorted arrays
+         */
+        private static class ArrayPairs<Key, Value> implements PairSource<Key, Value> {
+            final Key[] keys;
+            final Value[] values;
+            int next; // Next pair to be placed in a node
+
+            ArrayPairs(Key[] keys, Value[] values){
+                this.keys = keys;
+                this.values = values;
+            }
+
+            public void read(Key[] k, Value[] v, int offset, int n){
+                System.arraycopy(keys, next, k, offset, n);
+                System.arraycopy(values, next, v, offset, n);
+                next += n;
+            }
+        }
+
+        /**
+         * Builds the nodes of a packed FTree from sorted unique keys
+         * For every height h it knows the fewest keys a non-root subtree can have (all nodes with g-1 keys),
+         * the most keys it can have (all nodes full) and the keys it has when the nodes are filled with the target
+         * and it splits the pairs between the children so every child stays between those limits
+         */
+        private class Builder {
+            final PairSource<Key, Value> pairs;
+            final long[] minKeys = new long[64];
+            final long[] maxKeys = new long[64];
+            final long[] targetKeys = new long[64];
+
+            Builder(PairSource<Key, Value> pairs, double fillFactor){
+                this.pairs = pairs;
+                int target = Math.max(g_1, Math.min(TWOxG_1, (int) Math.round(fillFactor * TWOxG_1)));
+                long min = g, max = TWOxG, tgt = target + 1; // Number of leaves of a subtree raised to the height + 1
+                for (int h = 0; h < 64; h++){
+                    minKeys[h] = min - 1;
+                    maxKeys[h] = max - 1;
+                    targetKeys[h] = tgt - 1;
+                    min = saturatedMultiply(min, g);
+                    max = saturatedMultiply(max, TWOxG);
+                    tgt = saturatedMultiply(tgt, target + 1);
+                }
+            }
+
+            /**
+             * @param n number of pairs
+             * @return the root of the FTree
+             */
+            Node build(int n){
+                int height = 0;
+                while (targetKeys[height] < n) height++;
+                // The root needs at least two children that respect the minimum
+                if (height > 0 && n + 1 < 2 * (minKeys[height - 1] + 1)) height--;
+                return build(n, height, true);
+            }
+
+            /**
+             * Builds the subtree with the next n pairs
+             * @param n number of pairs of the subtree
+             * @param height height of the subtree
+             * @param isRoot true if the node is the root (it can have only two children)
+             * @return the root of the subtree
+             */
+            Node build(int n, int height, boolean isRoot){
+                Node node = new Node(height == 0);
+                node.size = n;
+                node.height = height;
+                if (height == 0){
+                    pairs.read(node.keys, node.values, 0, n);
+                    node.count = n;
+                    return node;
+                }
+
+                // Number of children, as close to the target as the limits of the children allow
+                long entries = n + 1L;
+                long children = ceilDivide(entries, targetKeys[height - 1] + 1);
+                children = Math.max(children, ceilDivide(entries, maxKeys[height - 1] + 1));
+                children = Math.max(children, isRoot ? 2 : g);
+                children = Math.min(children, entries / (minKeys[height - 1] + 1));
+                children = Math.min(children, TWOxG);
+
+                int c = (int) children;
+                int childKeys = n - (c - 1);
+                int before = 0;
+                for (int i = 0; i < c; i++){
+                    int childSize = childKeys / c + (i < childKeys % c ? 1 : 0);
+                    node.offsets[i] = before;
+                    before += childSize + 1;
+                    node.children[i] = build(childSize, height - 1, false);
+                    if (i < c - 1) pairs.read(node.keys, node.values, i, 1);
+                }
+                node.count = c - 1;
+                return node;
+            }
+
+            private long ceilDivide(long a, long b){
+                return (a + b - 1) / b;
+            }
+
+            private long saturatedMultiply(long a, long b){
+                return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+            }
+        }
+
+    /**
+     * Writes every key-value pair in ascending order of the keys to an OutputStream
+     * @see #writeTo(WritableByteChannel, Codec, Codec, boolean)
+     */
+    public void writeTo(OutputStream out, Codec<Key> keyCodec, Codec<Value> valueCodec, boolean delta) throws IOException
+    {
+        writeTo(Channels.newChannel(out), keyCodec, valueCodec, delta);
+    }
+
+    /**
+     * Writes every key-value pair in ascending order of the keys to a channel (the channel is not closed)
+     * Format: magic, version, flags, key size, value size and number of pairs (ints, one byte for version and flags)
+     * followed by the pairs, each one the encoded key and the encoded value
+     * With delta the key is written as the number of bytes it shares with the previous key (1 byte, 2 if the keys have
+     * more than 255 bytes) and only the bytes after those, near keys have the same first bytes so they take less space
+     * Use readFrom to load it back, writing a snapshot() is consistent even if this FTree changes at the same time
+     * @param out channel to write to
+     * @param keyCodec codec of the keys
+     * @param valueCodec codec of the values (null values can't be written)
+     * @param delta true to write only the bytes that change between consecutive keys
+     * @throws IOException if the channel can't be written
+     */
+    public void writeTo(WritableByteChannel out, Codec<Key> keyCodec, Codec<Value> valueCodec, boolean delta) throws IOException
+    {
+        int keySize = keyCodec.size();
+        int valueSize = valueCodec.size();
+        int pairSize = 2 + keySize + valueSize;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(STREAM_BUFFER, SNAPSHOT_HEADER + pairSize));
+        buffer.putInt(SNAPSHOT_MAGIC).put(SNAPSHOT_VERSION).put(delta ? SNAPSHOT_DELTA : 0);
+        buffer.putInt(keySize).putInt(valueSize).putInt(size());
+
+        ByteBuffer key = ByteBuffer.allocate(keySize);
+        ByteBuffer previous = ByteBuffer.allocate(keySize); // Starts with zeros, the reader does the same
+        for (Cursor c = cursor(); c.isValid(); c.next()){
+            if (buffer.remaining() < pairSize) drain(out, buffer);
+            if (delta){
+                Arrays.fill(key.array(), (byte) 0); // Codecs that don't use every byte leave the rest the same
+                keyCodec.write(key, 0, c.key());
+                byte[] now = key.array();
+                byte[] before = previous.array();
+                int shared = 0;
+                while (shared < keySize && now[shared] == before[shared]) shared++;
+                if (keySize <= 0xFF) buffer.put((byte) shared);
+                else buffer.putShort((short) shared);
+                buffer.put(now, shared, keySize - shared);
+                ByteBuffer swap = previous;
+                previous = key;
+                key = swap;
+            } else {
+                keyCodec.write(buffer, buffer.position(), c.key());
+                buffer.position(buffer.position() + keySize);
+            }
+            valueCodec.write(buffer, buffer.position(), c.value());
+            buffer.position(buffer.position() + valueSize);
+        }
+        drain(out, buffer);
+    }
+
+        private static final int SNAPSHOT_MAGIC = 0x4654536E; // "FTSn"
+        private static final byte SNAPSHOT_VERSION = 1;
+        private static final byte SNAPSHOT_DELTA = 1;
+        private static final int SNAPSHOT_HEADER = 18;
+        private static final int STREAM_BUFFER = 1 << 16;
+
+        private static void drain(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+        }
+
+    /**
+     * Loads an FTree written by writeTo from an InputStream
+     * @see #readFrom(ReadableByteChannel, int, Codec, Codec)
+     */
+    public static <Key extends Comparable<Key>, Value> FTree<Key, Value> readFrom(InputStream in, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException
+    {
+        return readFrom(Channels.newChannel(in), degree, keyCodec, valueCodec);
+    }
+
+    /**
+     * Loads an FTree written by writeTo, the pairs go straight from the channel to the nodes of a bottom-up build
+     * so besides the FTree only a buffer of the channel is kept in memory
+     * It can read past the end of the snapshot, so the snapshot should be the last thing in the channel
+     * @param in channel to read from (it's not closed)
+     * @param degree the degree of the new FTree (it doesn't have to be the degree of the FTree that was written)
+     * @param keyCodec codec of the keys (the same used to write)
+     * @param valueCodec codec of the values (the same used to write)
+     * @return a new FTree with the pairs of the snapshot, its nodes filled with DEFAULT_FILL_FACTOR of their capacity
+     * @throws IOException if the channel can't be read or it doesn't have a valid snapshot
+     */
+    public static <Key extends Comparable<Key>, Value> FTree<Key, Value> readFrom(ReadableByteChannel in, int degree, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException
+    {
+        SnapshotReader<Key, Value> reader = new SnapshotReader<>(in, keyCodec, valueCodec);
+        FTree<Key, Value> tree = new FTree<>(degree);
+        try {
+            if (reader.count > 0) tree.root = tree.new Builder(reader, DEFAULT_FILL_FACTOR).build(reader.count);
+        } catch (UncheckedIOException e){ // The Builder can't throw IOException
+            throw e.getCause();
+        }
+        return tree;
+    }
+
+        /**
+         * Decodes the pairs of a snapshot for the Builder, a block of the channel at a time
+         */
+        private static class SnapshotReader<Key extends Comparable<Key>, Value> implements PairSource<Key, Value> {
+            final ReadableByteChannel in;
+            final Codec<Key> keyCodec;
+            final Codec<Value> valueCodec;
+            final ByteBuffer buffer;
+            final boolean delta;
+            final int count;
+            final int keySize;
+            final int valueSize;
+            ByteBuffer key;
+            ByteBuffer previous;
+            Key last; // Last key read, to check that they are in order
+
+            SnapshotReader(ReadableByteChannel in, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException {
+                this.in = in;
+                this.keyCodec = keyCodec;
+                this.valueCodec = valueCodec;
+                keySize = keyCodec.size();
+                valueSize = valueCodec.size();
+                buffer = ByteBuffer.allocate(Math.max(STREAM_BUFFER, SNAPSHOT_HEADER + 2 + keySize + valueSize));
+                buffer.flip();
+
+                need(SNAPSHOT_HEADER);
+                if (buffer.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not an FTree snapshot");
+                if (buffer.get() != SNAPSHOT_VERSION) throw new IOException("Unknown FTree snapshot version");
+                delta = (buffer.get() & SNAPSHOT_DELTA) != 0;
+                if (buffer.getInt() != keySize || buffer.getInt() != valueSize) throw new IOException("The codecs don't match the ones used to write the snapshot");
+                count = buffer.getInt();
+                if (count < 0) throw new IOException("Negative number of pairs in the snapshot");
+                key = ByteBuffer.allocate(keySize);
+                previous = ByteBuffer.allocate(keySize);
+            }
+
+            public void read(Key[] keys, Value[] values, int offset, int n){
+                try {
+                    for (int i = offset; i < offset + n; i++){
+                        Key k;
+                        if (delta){
+                            need(keySize <= 0xFF ? 1 : 2);
+                            int shared = keySize <= 0xFF ? buffer.get() & 0xFF : buffer.getShort() & 0xFFFF;
+                            if (shared > keySize) throw new IOException("Corrupted FTree snapshot");
+                            need(keySize - shared + valueSize);
+                            System.arraycopy(previous.array(), 0, key.array(), 0, shared);
+                            buffer.get(key.array(), shared, keySize - shared);
+                            k = keyCodec.read(key, 0);
+                            ByteBuffer swap = previous;
+                            previous = key;
+                            key = swap;
+                        } else {
+                            need(keySize + valueSize);
+                            k = keyCodec.read(buffer, buffer.position());
+                            buffer.position(buffer.position() + keySize);
+                        }
+                        if (last != null && k.compareTo(last) <= 0) throw new IOException("The keys of the snapshot are not in ascending order");
+                        keys[i] = k;
+                        values[i] = valueCodec.read(buffer, buffer.position());
+                        buffer.position(buffer.position() + valueSize);
+                        last = k;
+                    }
+                } catch (IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            /**
+             * Makes sure the buffer has the next bytes, reading more of the channel if it doesn't
+             * @param bytes number of bytes needed
+             */
+            void need(int bytes) throws IOException {
+                if (buffer.remaining() >= bytes) return;
+                buffer.compact();
+                while (buffer.position() < bytes){
+                    if (in.read(buffer) < 0) throw new IOException("The FTree snapshot is cut short");
+                }
+                buffer.flip();
+            }
+        }
+
+    /**
+     * Iterates through all the keys in the FTree in order
+     * @return an iterable of all the keys in the FTree
+     */
+    public Iterable<Key> keys(){
+        return () -> new CursorIterator<Key>(null, null){
+            Key current(){ return cursor.key(); }
+        };
+    }
+
+    /**
+     * Iterates through all the values in the FTree in order
+     * @return an iterable of all the values in the FTree
+     */
+    public Iterable<Value> values()
+    {
+        return () -> new CursorIterator<Value>(null, null){
+            Value current(){ return cursor.value(); }
+        };
+    }
+    
+    /**
+     * Iterates through all the keys in the FTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the keys in the FTree between min and max (inclusive)
+     */
+    public Iterable<Key> keys(Key min, Key max) 
+    {
+        return () -> new CursorIterator<Key>(min, max){
+            Key current(){ return cursor.key(); }
+        };
+    }
+
+    /**
+     * Iterates through all the values in the FTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the values in the FTree between min and max (inclusive)
+     */
+    public Iterable<Value> values(Key min, Key max) 
+    {
+        return () -> new CursorIterator<Value>(min, max){
+            Value current(){ return cursor.value(); }
+        };
+    }
+
+        /**
+         * Iterator over the entries of the FTree that streams them from a cursor (nothing is copied before the first next)
+         * @param <T> type of the iterated elements (keys or values)
+         */
+        private abstract class CursorIterator<T> implements Iterator<T> {
+            final Cursor cursor = new Cursor();
+            final Key max;
+            long start; // When the iteration began, for the range metrics (-1 when it's not timed)
+
+            /**
+             * @param min key of the first entry (null to start at the smallest key)
+             * @param max key of the last entry (null to go until the biggest key)
+             */
+            CursorIterator(Key min, Key max){
+                start = metrics == null ? -1 : System.nanoTime();
+                if (min == null) cursor.first();
+                else cursor.seek(min);
+                this.max = max;
+            }
+
+            /**
+             * @return the element of the entry where the cursor is
+             */
+            abstract T current();
+
+            /**
+             * The range latency is recorded the first time this returns false (from the seek to the end of the range)
+             */
+            public boolean hasNext(){
+                boolean more = cursor.isValid() && (max == null || cursor.key().compareTo(max) <= 0);
+                if (!more && start >= 0){
+                    if (metrics != null) record(metrics.range, start);
+                    start = -1;
+                }
+                return more;
+            }
+
+            public T next(){
+                if (!hasNext()) throw new NoSuchElementException();
+                T t = current();
+                cursor.next();
+                if (metrics != null) metrics.rangeKeys++;
+                return t;
+            }
+        }
+
+    /**
+     * Opens a cursor positioned at the smallest key of the FTree
+     * The cursor must not be used after the FTree is modified (open a new one or call first/seek again)
+     * @return a new cursor
+     */
+    public Cursor cursor(){
+        Cursor c = new Cursor();
+        c.first();
+        return c;
+    }
+
+    /**
+     * Cursor that walks the FTree in order without copying it
+     * It only keeps the path from the root to the current entry (an explicit stack of nodes and indexes),
+     * so it uses O(height) memory no matter how many entries are visited and allocates nothing while moving
+     * In every node of the path except the last one the index is the child we went down to (child i is before key i),
+     * in the last node the index is the key where the cursor is
+     */
+    public class Cursor {
+        private Node[] path;
+        private int[] index;
+        private int depth; // Position of the current node in the path (-1 when the cursor is out of the FTree)
+
+        private Cursor(){
+            path = newPath(root.height + 1);
+            index = new int[root.height + 1];
+            depth = -1;
+        }
+
+        /**
+         * @return true if the cursor is on an entry, false if it went past the first or the last key
+         */
+        public boolean isValid(){
+            return depth >= 0;
+        }
+
+        /**
+         * @return the key where the cursor is
+         */
+        public Key key(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].keys[index[depth]];
+        }
+
+        /**
+         * @return the value of the key where the cursor is
+         */
+        public Value value(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].values[index[depth]];
+        }
+
+        /**
+         * Moves the cursor to the smallest key of the FTree
+         */
+        public void first(){
+            reset();
+            descendLeft(root);
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the biggest key of the FTree
+         */
+        public void last(){
+            reset();
+            descendRight(root);
+            backwardUp();
+        }
+
+        /**
+         * Moves the cursor to the smallest key greater than or equal to k (its ceiling), starting again from the root
+         * so it can jump forward or backward from where it is
+         * @param k key to seek
+         */
+        public void seek(Key k){
+            reset();
+            if (metrics != null) metrics.searches++;
+            Node n = root;
+            while (true){
+                int i = binarySearch(n, k);
+                push(n, i);
+                if (i < n.count && k.compareTo(n.keys[i]) == 0) return; // Found the exact key
+                if (n.isLeaf()) break;
+                n = n.children[i];
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the next key in order
+         */
+        public void next(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            if (n.isLeaf()){
+                index[depth]++;
+            } else { // The next key is the smallest one of the right child
+                index[depth]++;
+                descendLeft(n.children[index[depth]]);
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the previous key in order
+         */
+        public void previous(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            if (n.isLeaf()){
+                index[depth]--;
+            } else { // The previous key is the biggest one of the left child
+                descendRight(n.children[index[depth]]);
+            }
+            backwardUp();
+        }
+
+            /**
+             * Empties the path (and makes it bigger if the FTree grew since the cursor was created)
+             */
+            private void reset(){
+                if (path.length < root.height + 1){
+                    path = newPath(root.height + 1);
+                    index = new int[root.height + 1];
+                }
+                depth = -1;
+            }
+
+            @SuppressWarnings("unchecked")
+            private Node[] newPath(int length){
+                return (Node[]) new FTree.Node[length];
+            }
+
+            private void push(Node n, int i){
+                depth++;
+                path[depth] = n;
+                index[depth] = i;
+            }
+
+            /**
+             * Goes down to the leftmost leaf of the given node
+             * @param n Node to start from
+             */
+            private void descendLeft(Node n){
+                while (true){
+                    push(n, 0);
+                    if (n.isLeaf()) return;
+                    n = n.children[0];
+                }
+            }
+
+            /**
+             * Goes down to the rightmost leaf of the given node
+             * @param n Node to start from
+             */
+            private void descendRight(Node n){
+                while (true){
+                    if (n.isLeaf()){
+                        push(n, n.count - 1);
+                        return;
+                    }
+                    push(n, n.count);
+                    n = n.children[n.count];
+                }
+            }
+
+            /**
+             * Goes up while the cursor is after the last key of the current node,
+             * the index of the parent is the child we came from, which is also the next key
+             */
+            private void forwardUp(){
+                while (depth >= 0 && index[depth] >= path[depth].count){
+                    depth--;
+                }
+            }
+
+            /**
+             * Goes up while the cursor is before the first key of the current node,
+             * the index of the parent is the child we came from and the key before it is the previous key
+             */
+            private void backwardUp(){
+                while (depth >= 0 && index[depth] < 0){
+                    depth--;
+                    if (depth >= 0) index[depth]--;
+                }
+            }
+    }
+
+    /**
+     * @return the minimum key in the FTree
+     */
+    public Key min()
+	{
+        if (root == null || root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[0]; // Travels to the leftmost node
+        }
+        return n.keys[0];
+    }
+
+    /**
+     * @return the maximum key in the FTree
+     */
+    public Key max()
+	{
+        if (root == null || root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[n.count];  // Travels to the rightmost node
+        }
+        return n.keys[n.count - 1];
+    }
+
+    /**
+     * Determines the ammount of keys that are less than the given key
+     * @param k key to find the rank of
+     * @return the rank of the key in the FTree
+     */
+    public int rank(Key k){
+        if (metrics == null) return rank(root, k, false);
+        metrics.searches++;
+        long start = System.nanoTime();
+        int rank = rank(root, k, false);
+        record(metrics.rank, start);
+        return rank;
+    }
+
+        /**
+         * Determines the ammount of keys that are less than (or equal to) the given key from a given node
+         * The offsets of the node give the keys before the child i at once, so each node costs only its binary search
+         * @param node Node to start the rank from
+         * @param k key to find the rank of
+         * @param inclusive true to count the key too if it's in the FTree
+         * @return the rank of the key in the subtree of the node
+         */
+        private int rank(Node node, Key k, boolean inclusive){
+            int rank = 0;
+            while (true){
+                int i = binarySearch(node, k);
+                boolean found = i < node.count && k.compareTo(node.keys[i]) == 0;
+                if (node.isLeaf()) return rank + ((found && inclusive) ? i + 1 : i);
+                if (found) return rank + (inclusive ? node.offsets[i + 1] : node.offsets[i + 1] - 1);
+                rank += node.offsets[i];
+                node = node.children[i];
+            }
+        }
+
+    /**
+     * Finds the key that is the n-th smallest key in the FTree
+     * @param n index of the key to find
+     * @return the n-th smallest key in the FTree
+     */
+    public Key select(int n){
+        if (metrics == null) return selectKey(n);
+        long start = System.nanoTime();
+        Key k = selectKey(n);
+        record(metrics.select, start);
+        return k;
+    }
+
+        private Key selectKey(int n){
+            if(root == null || n < 0 || n >= root.size) return null;
+
+            Node node = root;
+            while (!node.isLeaf()){
+                // The child is found with a binary search on the offsets of the node (the last child that starts at or before n)
+                int low = 0;
+                int high = node.count;
+                while (low < high){
+                    int mid = (low + high + 1) >>> 1;
+                    if (node.offsets[mid] <= n) low = mid;
+                    else high = mid - 1;
+                }
+                // The key i comes right after the keys of the child i
+                if (low < node.count && n == node.offsets[low + 1] - 1) return node.keys[low];
+                n -= node.offsets[low];
+                node = node.children[low];
+            }
+            return node.keys[n];
+        }
+
+    /**
+     * Finds the key that is the largest key less than or equal to the given key
+     * @param k key to find the floor of
+     * @return the floor of the key
+     */
+    public Key floor(Key k){
+        Key floor = null; // Biggest key smaller than k seen on the way down
+        if (metrics != null) metrics.searches++;
+        Node node = root;
+        while (true){
+            int i = binarySearch(node, k);
+            if (i < node.count && node.keys[i].compareTo(k) == 0){ // Found the exact key
+                return node.keys[i];
+            }
+            if (i > 0) floor = node.keys[i - 1];
+            if (node.isLeaf()) return floor;
+            node = node.children[i];
+        }
+    }
+       
+    /**
+     * Finds the key that is the smallest key greater than or equal to the given key
+     * @param k key to find the ceiling of
+     * @return the ceiling of the key
+     */
+    public Key ceiling(Key k){
+        Key ceiling = null; // Smallest key bigger than k seen on the way down
+        if (metrics != null) metrics.searches++;
+        Node node = root;
+        while (true){
+            int i = binarySearch(node, k);
+            if (i < node.count && node.keys[i].compareTo(k) == 0){ // Found the exact key
+                return node.keys[i];
+            }
+            if (i < node.count) ceiling = node.keys[i];
+            if (node.isLeaf()) return ceiling;
+            node = node.children[i];
+        }
+    }
+
+    /**
+     * Prints all the keys in the FTree
+     */
+    public void printlnKeys(){
+        if (root == null) return;
+    
+        Queue<Node> q = new LinkedList<>();
+        q.add(root);
+        int currentHeight = root.height;
+    
+        while (!q.isEmpty()){
+            Node n = q.poll();
+            int nodeHeight = n.height;
+    
+            if (nodeHeight != currentHeight){
+                System.out.println();
+                currentHeight = nodeHeight;
+            }
+    
+            System.out.print("[");
+            for (int i = 0; i < n.count; i++){
+                System.out.print(n.keys[i]);
+                if (i < n.count - 1) System.out.print(",");
+            }
+            System.out.print("]");
+    
+            if (!n.isLeaf()){
+                for (int i = 0; i <= n.count; i++) q.add(n.children[i]);
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Binary search for the key in the node
+     * @param n Node to search the key in
+     * @param k key to search
+     * @return the index of the key in the node
+     */
+    public int binarySearch(Node n, Key k){
+        int low = 0;
+        int high = n.count - 1;
+        int comparisons = 0;
+    
+        while (low <= high){
+            int mid = (high + low) / 2;
+            int cmp = k.compareTo(n.keys[mid]);
+            comparisons++;
+    
+            if (cmp == 0){
+                low = mid;
+                break;
+            }
+            else if (cmp < 0) high = mid - 1;
+            else low = mid + 1;
+        }
+        if (metrics != null) metrics.comparisons += comparisons;
+        return low;
+    }
+
+    public static void main(String[] args)
+    {
+    }
+}
\ No newline at end of file
@@ -1,3 +1,5 @@
+package ftree;
+
 import java.util.Scanner;
 
 public class FTreeClient {
@@ -38,9 +40,32 @@ public class FTreeClient {
                         }
                     }
                     break;
-                case "get":
+                case "delete":
                     System.out.print("Enter key (integer): ");
                     int key = scanner.nextInt();
+                    if (tree.contains(key)) {
+                        tree.delete(key);
+                        System.out.println("---Deleted: " + key + "---");
+                    } else
+                        System.out.println("Key \"" + key + "\" not found.");
+                    break;
+                case "deletemin":
+                    if (tree.size() > 0) {
+                        System.out.println("---Deleted: " + tree.min() + "---");
+                        tree.deleteMin();
+                    } else
+                        System.out.println("Tree is empty.");
+                    break;
+                case "deletemax":
+                    if (tree.size() > 0) {
+                        System.out.println("---Deleted: " + tree.max() + "---");
+                        tree.deleteMax();
+                    } else
+                        System.out.println("Tree is empty.");
+                    break;
+                case "get":
+                    System.out.print("Enter key (integer): ");
+                    key = scanner.nextInt();
                     String result = tree.get(key);
                     if (result != null)
                         System.out.println("Value for key \"" + key + "\" is: \"" + result + "\"");
@@ -162,6 +187,9 @@ public class FTreeClient {
     private static void printMenu() {
         System.out.println("\nAvailable commands:");
         System.out.println("insert        - Insert new key-value pairs");
+        System.out.println("delete        - Delete a key and its value");
+        System.out.println("deleteMin     - Delete the minimum key");
+        System.out.println("deleteMax     - Delete the maximum key");
         System.out.println("get           - Get the value for a given key");
         System.out.println("contains      - Check if a key exists in the tree");
         System.out.println("size          - Get the total number of keys in the tree");
@@ -0,0 +1,256 @@
+package ftree;
+
+/**
+ * FTreeMetrics
+ * Metrics of an FTree, only kept after FTree.setMetrics(true) (with them off the FTree only checks a null field)
+ * The FTree counts its operations with their latency in histograms, the splits and the comparisons of binarySearch;
+ * the shape of the FTree (nodes, fill factors and heap) needs a walk of every node, so it's measured by FTree.metrics
+ * and when the metrics are turned on
+ * The counters are plain fields written by the thread that changes the FTree, other threads only see the Snapshots it
+ * publishes (FTree.metrics, and every PUBLISH_NANOS when it times an operation), which FTree.registerMBean shows over JMX
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public final class FTreeMetrics
+{
+    private static final int FILL_BUCKETS = 10;
+    static final long PUBLISH_NANOS = 100_000_000L; // 100 ms
+    static final Snapshot NONE = new FTreeMetrics().snapshot(0, 0); // What the MBean shows with the metrics off
+
+    final Histogram get = new Histogram();
+    final Histogram put = new Histogram();
+    final Histogram range = new Histogram();
+    final Histogram rank = new Histogram();
+    final Histogram select = new Histogram();
+    long rangeKeys;
+    long splits;
+    long comparisons;
+    long searches; // Operations that look a key up in the FTree, the ones that do the comparisons
+    Shape shape = new Shape(0, new long[FILL_BUCKETS], 0, 0); // Of the last walk of the FTree
+    long publishedAt; // System.nanoTime of the last Snapshot published for the MBean
+
+    FTreeMetrics()
+    {
+    }
+
+    /**
+     * @param height height of the FTree
+     * @param size number of keys of the FTree
+     * @return a snapshot of the counters now and of the shape of the last walk
+     */
+    Snapshot snapshot(int height, int size)
+    {
+        return new Snapshot(this, height, size, shape);
+    }
+
+    /**
+     * @param fillFactor keys / (2g-1) of a node
+     * @return the bucket of the fill factor in the distribution
+     */
+    static int fillBucket(double fillFactor)
+    {
+        return Math.min(FILL_BUCKETS - 1, (int) (fillFactor * FILL_BUCKETS));
+    }
+
+    /**
+     * @return an empty distribution of fill factors
+     */
+    static long[] newFillCounts()
+    {
+        return new long[FILL_BUCKETS];
+    }
+
+    /**
+     * Shape of the FTree measured by a walk of every node
+     */
+    static final class Shape {
+        final long nodes;
+        final long[] fillCounts; // Nodes in each bucket of fill factor
+        final double fillSum;
+        final long heapBytes;
+
+        Shape(long nodes, long[] fillCounts, double fillSum, long heapBytes){
+            this.nodes = nodes;
+            this.fillCounts = fillCounts;
+            this.fillSum = fillSum;
+            this.heapBytes = heapBytes;
+        }
+    }
+
+    /**
+     * Number of operations of a kind and percentiles of their latency (within 1/8 of the real value)
+     */
+    public static final class Latency
+    {
+        private final long count;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        Latency(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos)
+        {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount(){ return count; }
+        public double getMeanNanos(){ return meanNanos; }
+        public long getP50Nanos(){ return p50Nanos; }
+        public long getP90Nanos(){ return p90Nanos; }
+        public long getP99Nanos(){ return p99Nanos; }
+        public long getP999Nanos(){ return p999Nanos; }
+        public long getMaxNanos(){ return maxNanos; }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d ops, mean %.0f ns, p50 %d ns, p90 %d ns, p99 %d ns, p99.9 %d ns, max %d ns",
+                                 count, meanNanos, p50Nanos, p90Nanos, p99Nanos, p999Nanos, maxNanos);
+        }
+    }
+
+    /**
+     * Metrics of an FTree at a point in time
+     */
+    public static final class Snapshot implements FTreeMetricsMXBean
+    {
+        private final Latency get;
+        private final Latency put;
+        private final Latency range;
+        private final Latency rank;
+        private final Latency select;
+        private final long rangeKeys;
+        private final long splits;
+        private final long comparisons;
+        private final long searches;
+        private final int height;
+        private final int size;
+        private final Shape shape;
+
+        private Snapshot(FTreeMetrics m, int height, int size, Shape shape)
+        {
+            get = m.get.latency();
+            put = m.put.latency();
+            range = m.range.latency();
+            rank = m.rank.latency();
+            select = m.select.latency();
+            rangeKeys = m.rangeKeys;
+            splits = m.splits;
+            comparisons = m.comparisons;
+            searches = m.searches;
+            this.height = height;
+            this.size = size;
+            this.shape = shape;
+        }
+
+        public Latency getGet(){ return get; }
+        public Latency getPut(){ return put; }
+        public Latency getRange(){ return range; }
+        public Latency getRank(){ return rank; }
+        public Latency getSelect(){ return select; }
+        public long getRangeKeys(){ return rangeKeys; }
+        public long getSplits(){ return splits; }
+        public long getComparisons(){ return comparisons; }
+        public long getSearches(){ return searches; }
+        public int getHeight(){ return height; }
+        public int getSize(){ return size; }
+        public long getNodes(){ return shape.nodes; }
+        public long getEstimatedHeapBytes(){ return shape.heapBytes; }
+
+        public double getComparisonsPerOperation()
+        {
+            return searches == 0 ? 0 : (double) comparisons / searches;
+        }
+
+        public double[] getFillFactors()
+        {
+            double[] fractions = new double[FILL_BUCKETS];
+            for (int i = 0; i < FILL_BUCKETS && shape.nodes > 0; i++) fractions[i] = (double) shape.fillCounts[i] / shape.nodes;
+            return fractions;
+        }
+
+        public double getAverageFillFactor()
+        {
+            return shape.nodes == 0 ? 0 : shape.fillSum / shape.nodes;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder s = new StringBuilder();
+            s.append("get      ").append(get).append('\n');
+            s.append("put      ").append(put).append('\n');
+            s.append("range    ").append(range).append(", ").append(rangeKeys).append(" keys\n");
+            s.append("rank     ").append(rank).append('\n');
+            s.append("select   ").append(select).append('\n');
+            s.append(String.format("splits %d, comparisons %d in %d searches (%.1f per search)%n", splits, comparisons, searches,
+                                   getComparisonsPerOperation()));
+            s.append(String.format("size %d, height %d, nodes %d, ~%d heap bytes, average fill %.0f%%%n",
+                                   size, height, shape.nodes, shape.heapBytes, 100 * getAverageFillFactor()));
+            s.append("fill factors");
+            double[] fill = getFillFactors();
+            for (int i = 0; i < FILL_BUCKETS; i++) s.append(String.format(" %d%%:%.1f%%", 10 * i, 100 * fill[i]));
+            return s.toString();
+        }
+    }
+
+    /**
+     * Histogram of latencies in nanoseconds with 8 buckets for every power of 2 (exact below 16 ns)
+     * Recording is a few shifts and an increment, so it can be done on every operation
+     */
+    static final class Histogram {
+        private static final int EXACT = 16;
+        private final long[] counts = new long[EXACT + 60 * 8];
+        private long count;
+        private long sum;
+        private long max;
+
+        void record(long nanos){
+            if (nanos < 0) nanos = 0;
+            counts[bucket(nanos)]++;
+            count++;
+            sum += nanos;
+            if (nanos > max) max = nanos;
+        }
+
+        Latency latency(){
+            long n = count;
+            return new Latency(n, n == 0 ? 0 : (double) sum / n, percentile(0.5), percentile(0.9), percentile(0.99),
+                               percentile(0.999), max);
+        }
+
+            /**
+             * @return the upper bound of the bucket of the value with the given rank (nearest rank)
+             */
+            private long percentile(double p){
+                long rank = (long) Math.ceil(p * count);
+                long seen = 0;
+                for (int b = 0; b < counts.length; b++){
+                    seen += counts[b];
+                    if (seen >= rank && seen > 0) return Math.min(max, upperBound(b));
+                }
+                return 0;
+            }
+
+            private static int bucket(long v){
+                if (v < EXACT) return (int) v;
+                int e = 63 - Long.numberOfLeadingZeros(v); // At least 4
+                return EXACT + (e - 4) * 8 + (int) ((v >>> (e - 3)) & 7);
+            }
+
+            private static long upperBound(int b){
+                if (b < EXACT) return b;
+                int e = (b - EXACT) / 8 + 4;
+                long lower = (long) (8 + (b - EXACT) % 8) << (e - 3);
+                return lower + (1L << (e - 3)) - 1;
+            }
+    }
+}
@@ -0,0 +1,93 @@
+package ftree;
+
+/**
+ * FTreeMetricsMXBean
+ * Attributes of the metrics of an FTree, the same for a snapshot (FTree.metrics) and for the MBean that
+ * FTree.registerMBean puts in the platform MBean server
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public interface FTreeMetricsMXBean
+{
+    /**
+     * @return calls of get and contains and their latency
+     */
+    FTreeMetrics.Latency getGet();
+
+    /**
+     * @return calls of put and their latency
+     */
+    FTreeMetrics.Latency getPut();
+
+    /**
+     * @return range iterations (keys and values) that reached their end and their latency, from the seek of the first key
+     * to the end of the range (it includes the work done by the caller between keys, iterations stopped early aren't in it)
+     */
+    FTreeMetrics.Latency getRange();
+
+    /**
+     * @return calls of rank and their latency
+     */
+    FTreeMetrics.Latency getRank();
+
+    /**
+     * @return calls of select and their latency
+     */
+    FTreeMetrics.Latency getSelect();
+
+    /**
+     * @return keys returned by the range iterations
+     */
+    long getRangeKeys();
+
+    /**
+     * @return nodes split by put and putAll
+     */
+    long getSplits();
+
+    /**
+     * @return key comparisons done by binarySearch (every operation that goes down the FTree)
+     */
+    long getComparisons();
+
+    /**
+     * @return operations that looked a key up in the FTree: get, contains, put, delete, rank, floor, ceiling, size of a
+     * range, seek of a range or of a cursor and every key of putAll and getAll
+     */
+    long getSearches();
+
+    /**
+     * @return comparisons divided by the number of searches
+     */
+    double getComparisonsPerOperation();
+
+    /**
+     * @return the height of the FTree
+     */
+    int getHeight();
+
+    /**
+     * @return the number of keys of the FTree
+     */
+    int getSize();
+
+    /**
+     * @return the number of nodes of the FTree
+     */
+    long getNodes();
+
+    /**
+     * @return fraction of the nodes with each fill factor (keys / (2g-1)), in 10 buckets of 10%
+     */
+    double[] getFillFactors();
+
+    /**
+     * @return average fill factor of the nodes
+     */
+    double getAverageFillFactor();
+
+    /**
+     * @return estimated bytes of the nodes in the heap (the keys and values themselves are not included)
+     */
+    long getEstimatedHeapBytes();
+}
@@ -0,0 +1,203 @@
+package ftree;
+
+/**
+ * HotKeyCache
+ * Small cache of the values of the keys that are looked up the most, in front of the descent of FTree.get and contains
+ * The entries are in a fixed-size open-addressing table split in buckets of 8 slots, a key can only be in the bucket
+ * of its hash so a lookup checks at most 8 slots
+ * The keys that get in are chosen with TinyLFU: every lookup adds one to the estimated frequency of its key (a count-min
+ * sketch of 4-bit counters that are halved after 10 lookups per slot, so old popularity fades away) and a key only
+ * takes the place of a key of its full bucket if it was looked up more times,
+ * so a scan of keys that are looked up once doesn't push the hot keys out
+ * The keys need a hashCode consistent with compareTo (keys that compare equal have the same hash)
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+final class HotKeyCache<Key extends Comparable<Key>, Value>
+{
+    private static final int BUCKET = 8; // Slots of a bucket
+    private static final int[] SEEDS = {0x97CB3127, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1}; // One per row of the sketch
+    private static final long HALF = 0x7777777777777777L; // Clears the bit that moves into the next counter when halving
+
+    private final int[] hashes; // Hash of the key in each slot (0 if the slot is free)
+    private final Key[] keys;
+    private final Value[] values;
+    private final int bucketMask;
+    private final long[] sketch; // 16 counters of 4 bits per long, a key has one counter in each long of a block of 4
+    private final int sketchShift; // 32 - log2 of the number of blocks of the sketch
+    private final int sampleSize;
+    private int samples;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor for the HotKeyCache
+     * @param capacity number of keys it can hold (rounded up to a power of 2, minimum 8)
+     */
+    @SuppressWarnings("unchecked")
+    HotKeyCache(int capacity)
+    {
+        int slots = Math.max(BUCKET, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        hashes = new int[slots];
+        keys = (Key[]) new Comparable[slots];
+        values = (Value[]) new Object[slots];
+        bucketMask = slots / BUCKET - 1;
+        sketch = new long[slots];
+        sketchShift = Integer.numberOfLeadingZeros(slots / 4) + 1;
+        sampleSize = 10 * slots;
+    }
+
+    /**
+     * Looks up a key and counts the lookup for the admission of the key
+     * @param k key to look up
+     * @return the slot of the key, or -1 if it's not cached
+     */
+    int find(Key k)
+    {
+        int h = hash(k);
+        increment(h);
+        int s = slot(h, k);
+        if (s >= 0) hits++;
+        else misses++;
+        return s;
+    }
+
+    /**
+     * @param slot slot returned by find
+     * @return the value of the key in the slot
+     */
+    Value value(int slot)
+    {
+        return values[slot];
+    }
+
+    /**
+     * Offers a key that find didn't have and that was found in the FTree
+     * It goes in a free slot of its bucket, or in place of a key of the bucket (chosen by its hash) if it's more frequent
+     * @param k key found in the FTree
+     * @param v value of the key
+     */
+    void admit(Key k, Value v)
+    {
+        int h = hash(k);
+        int first = (h & bucketMask) * BUCKET;
+        int victim = first + (h >>> 29); // A slot of the bucket chosen by the hash, unless there is a free one
+        for (int s = first; s < first + BUCKET; s++){
+            if (hashes[s] == 0){
+                victim = s;
+                break;
+            }
+        }
+        if (hashes[victim] != 0 && frequency(h) <= frequency(hashes[victim])) return;
+        hashes[victim] = h;
+        keys[victim] = k;
+        values[victim] = v;
+    }
+
+    /**
+     * Changes the value of a key if it's cached (put calls it so the cache never has an old value)
+     * @param k key that was put
+     * @param v its new value
+     */
+    void update(Key k, Value v)
+    {
+        int s = slot(hash(k), k);
+        if (s >= 0) values[s] = v;
+    }
+
+    /**
+     * Removes a key from the cache if it's there (delete calls it)
+     * @param k key that was deleted
+     */
+    void remove(Key k)
+    {
+        int s = slot(hash(k), k);
+        if (s < 0) return;
+        hashes[s] = 0;
+        keys[s] = null;
+        values[s] = null;
+    }
+
+    /**
+     * @return the number of lookups that found their key in the cache
+     */
+    long hits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to go down the FTree
+     */
+    long misses()
+    {
+        return misses;
+    }
+
+        /**
+         * @return the slot of the key in its bucket, or -1 if it's not cached
+         */
+        private int slot(int h, Key k){
+            int first = (h & bucketMask) * BUCKET;
+            for (int s = first; s < first + BUCKET; s++){
+                if (hashes[s] == h && k.compareTo(keys[s]) == 0) return s;
+            }
+            return -1;
+        }
+
+        /**
+         * Spreads the bits of hashCode (never 0, that marks a free slot)
+         */
+        private static int hash(Object k){
+            int h = k.hashCode() * 0x9E3779B9;
+            h ^= h >>> 16;
+            return h == 0 ? 1 : h;
+        }
+
+        /**
+         * Adds one to the 4 counters of a hash in the sketch (the ones at 15 stay there)
+         * and halves every counter after sampleSize increments
+         */
+        private void increment(int h){
+            boolean added = false;
+            int block = block(h);
+            for (int row = 0; row < SEEDS.length; row++){
+                int r = rowHash(h, row);
+                int index = block + row;
+                int shift = (r >>> 28) << 2; // The top 4 bits choose one of the 16 counters of the long
+                if (((sketch[index] >>> shift) & 15) != 15){
+                    sketch[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++samples == sampleSize){
+                for (int i = 0; i < sketch.length; i++) sketch[i] = (sketch[i] >>> 1) & HALF;
+                samples /= 2;
+            }
+        }
+
+        /**
+         * @return the estimated number of lookups of a hash (the smallest of its 4 counters)
+         */
+        private int frequency(int h){
+            int frequency = 15;
+            int block = block(h);
+            for (int row = 0; row < SEEDS.length; row++){
+                int r = rowHash(h, row);
+                frequency = Math.min(frequency, (int) (sketch[block + row] >>> ((r >>> 28) << 2)) & 15);
+            }
+            return frequency;
+        }
+
+        /**
+         * @return the first long of the block of a hash (from other bits than the bucket)
+         */
+        private int block(int h){
+            return ((h * 0x85EBCA6B) >>> sketchShift) << 2;
+        }
+
+        private static int rowHash(int h, int row){
+            int r = (h + row) * SEEDS[row];
+            return r ^ (r >>> 17);
+        }
+}
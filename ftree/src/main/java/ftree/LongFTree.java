@@ -0,0 +1,674 @@
+package ftree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * LongFTree
+ * FTree specialized for long keys, the keys are stored unboxed in a long[] per node
+ * and compared with the primitive operators, so there is no boxing and no compareTo call in the descents
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class LongFTree<Value>
+{
+    private int g;
+    private Node root;
+    private int TWOxG;
+    private int TWOxG_1;
+    private int g_1;
+    private Node[] putPath; // Nodes of the descent of put, reused by every put
+    private int[] putIndex; // Child taken in each node of putPath
+
+    /**
+     * Constructor for the LongFTree
+     * @param degree the degree of the LongFTree (minimum 2) which determines the number of children each node can have (g children and g-1 keys)
+     */
+    public LongFTree(int degree)
+    {
+        assert(degree >= 2);
+        this.g = degree;
+        TWOxG = 2 * g;
+        TWOxG_1 = 2 * g - 1;
+        g_1 = g - 1;
+        root = new Node(true);
+        putPath = newPath(8);
+        putIndex = new int[8];
+    }
+
+    /**
+     * Node class for the LongFTree
+     * Same layout as the FTree nodes (offsets included) but the keys are a long[]
+     */
+    private class Node {
+        long[] keys;
+        Value[] values;
+        Node[] children;
+        int[] offsets; // offsets[i] is the number of keys of the subtree before the child i (internal nodes only)
+        int count;
+        int size;
+        int height;
+
+        /**
+         * Constructor for the Node
+         * @param leaf true if the node is a leaf (leaves don't need the children array)
+         */
+        @SuppressWarnings("unchecked")
+        Node(boolean leaf){
+            keys = new long[TWOxG_1];
+            values = (Value[]) new Object[TWOxG_1];
+            if (!leaf){
+                children = (Node[]) new LongFTree.Node[TWOxG];
+                offsets = new int[TWOxG];
+            }
+            height = 0;
+        }
+
+        boolean isLeaf(){
+            return children == null;
+        }
+
+        boolean isFull(){
+            return count == TWOxG_1;
+        }
+
+        boolean isEmpty(){
+            return count == 0;
+        }
+    }
+
+    /**
+     * @return the number of keys in the LongFTree
+     */
+    public int size()
+    {
+        return root.size;
+    }
+
+        /**
+         * Calculates the size (and the offsets) of a node again from the sizes of its children
+         * @param n Node to be updated
+         */
+        private void updateSize(Node n){
+            int size = n.count;
+            if (!n.isLeaf()){
+                for (int i = 0; i <= n.count; i++){
+                    n.offsets[i] = size - n.count + i;
+                    size += n.children[i].size;
+                }
+            }
+            n.size = size;
+        }
+
+        /**
+         * Updates the size and the offsets of a node after the size of one of its children changed
+         * @param n Node to be updated
+         * @param i index of the child that changed
+         * @param delta number of keys added to the child
+         */
+        private void childResized(Node n, int i, int delta){
+            n.size += delta;
+            for (int j = i + 1; j <= n.count; j++) n.offsets[j] += delta;
+        }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return the number of keys in the LongFTree between min and max (inclusive)
+     */
+    public int size(long min, long max){
+        if (min > max) return 0;
+
+        // Goes down while min and max are in the same child, the keys before that child count for both so they cancel out
+        Node node = root;
+        while (!node.isLeaf()){
+            int i = binarySearch(node, min);
+            if (i != binarySearch(node, max) || (i < node.count && node.keys[i] == max)) break;
+            node = node.children[i];
+        }
+        return rank(node, max, true) - rank(node, min, false);
+    }
+
+    /**
+     * The height of a tree is the number of edges on the longest path between the root and a leaf
+     * @return the height of the LongFTree
+     */
+    public int height()
+    {
+        return root.height;
+    }
+
+    /**
+     * Checks if the key is present in the LongFTree (null values count as present)
+     * @param k key to be checked
+     * @return true if the key is in the LongFTree, false otherwise
+     */
+    public boolean contains(long k)
+    {
+        Node n = root;
+        while (true){
+            int i = binarySearch(n, k);
+            if (i < n.count && n.keys[i] == k) return true;
+            if (n.isLeaf()) return false;
+            n = n.children[i];
+        }
+    }
+
+    /**
+     * Gets the value of the key
+     * @param k key to get the value of
+     * @return the value of the key, or null if the key is not in the LongFTree
+     */
+    public Value get(long k)
+    {
+        Node n = root;
+        while (true){
+            int i = binarySearch(n, k);
+            if (i < n.count && n.keys[i] == k) return n.values[i]; // Checks if the key is in this node
+            if (n.isLeaf()) return null;
+            n = n.children[i]; // If the key is not in this node, we go to the child where it could be
+        }
+    }
+
+    /**
+     * Inserts a key-value pair into the LongFTree (overwrites the value if the key is already there)
+     * @param k key to be inserted
+     * @param v value to be inserted
+     */
+    public void put(long k, Value v)
+    {
+        if (root.isFull())
+        {
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.size = root.size;
+            newRoot.height = root.height + 1;
+            split(newRoot, 0);
+            root = newRoot;
+        }
+        if (putPath.length <= root.height){
+            putPath = newPath(2 * root.height + 1);
+            putIndex = new int[putPath.length];
+        }
+
+        // Goes down splitting the full children before entering them, so there is always room for the key
+        Node node = root;
+        int depth = 0;
+        while (true){
+            int i = binarySearch(node, k);
+
+            // Checks if the key is already in the node (an overwrite touches no counter)
+            if (i < node.count && node.keys[i] == k){
+                node.values[i] = v;
+                clearPath(depth);
+                return;
+            }
+            if (node.isLeaf()){
+                System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+                System.arraycopy(node.values, i, node.values, i + 1, node.count - i);
+                node.keys[i] = k;
+                node.values[i] = v;
+                node.count++;
+                node.size++;
+                break;
+            }
+            if (node.children[i].isFull()){
+                split(node, i);
+                // Checks if the key is in the new node after the split
+                if (k == node.keys[i]){
+                    node.values[i] = v;
+                    clearPath(depth);
+                    return;
+                }
+                else if (k > node.keys[i]) i++;
+            }
+            putPath[depth] = node;
+            putIndex[depth] = i;
+            depth++;
+            node = node.children[i];
+        }
+
+        // The key is new, so every node on the path has one more key (the heights only change when the root splits)
+        for (int d = depth - 1; d >= 0; d--) childResized(putPath[d], putIndex[d], 1);
+        clearPath(depth);
+    }
+
+        /**
+         * @param length length of the path
+         * @return an empty path for put
+         */
+        @SuppressWarnings("unchecked")
+        private Node[] newPath(int length){
+            return (Node[]) new LongFTree.Node[length];
+        }
+
+        /**
+         * Drops the references of the path of put
+         * @param depth number of nodes in the path
+         */
+        private void clearPath(int depth){
+            Arrays.fill(putPath, 0, depth, null);
+        }
+
+        /**
+         * Splits a node in two
+         * @param parent Node that is the parent of the node to be split
+         * @param index index of the node to be split
+         */
+        private void split(Node parent, int index)
+        {
+            Node splitNode = parent.children[index]; // Node to be split
+            Node newNode = new Node(splitNode.isLeaf()); // Node to be created where the second half of the splitNode will be
+
+            // Moves the middle entry of the splitNode to the parent
+            int moved = parent.count - index;
+            System.arraycopy(parent.keys, index, parent.keys, index + 1, moved);
+            System.arraycopy(parent.values, index, parent.values, index + 1, moved);
+            System.arraycopy(parent.children, index + 1, parent.children, index + 2, moved);
+            System.arraycopy(parent.offsets, index + 1, parent.offsets, index + 2, moved); // The keys before them didn't change
+            parent.keys[index] = splitNode.keys[g_1];
+            parent.values[index] = splitNode.values[g_1];
+            parent.children[index + 1] = newNode;
+            parent.count++;
+
+            // Moves the second half of the splitNode to the newNode
+            System.arraycopy(splitNode.keys, g, newNode.keys, 0, g_1);
+            System.arraycopy(splitNode.values, g, newNode.values, 0, g_1);
+            if (!splitNode.isLeaf()){
+                System.arraycopy(splitNode.children, g, newNode.children, 0, g);
+                Arrays.fill(splitNode.children, g, TWOxG, null);
+            }
+            Arrays.fill(splitNode.values, g_1, TWOxG_1, null); // Clears the moved references so they can be collected
+            splitNode.count = g_1;
+            newNode.count = g_1;
+            newNode.height = splitNode.height;
+
+            // Updates the sizes of the nodes
+            if(splitNode.isLeaf()){
+                splitNode.size = g_1;
+                newNode.size = g_1;
+            }
+            else{
+                updateSize(splitNode);
+                updateSize(newNode);
+            }
+            parent.offsets[index + 1] = parent.offsets[index] + splitNode.size + 1;
+        }
+
+    /**
+     * @return all the keys in the LongFTree in order
+     */
+    public long[] keys(){
+        long[] keys = new long[size()];
+        int i = 0;
+        for (Cursor c = cursor(); c.isValid(); c.next()) keys[i++] = c.key();
+        return keys;
+    }
+
+    /**
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return all the keys in the LongFTree in order between min and max (inclusive)
+     */
+    public long[] keys(long min, long max){
+        long[] keys = new long[size(min, max)];
+        if (keys.length == 0) return keys;
+        Cursor c = cursor();
+        c.seek(min);
+        for (int i = 0; i < keys.length; i++, c.next()) keys[i] = c.key();
+        return keys;
+    }
+
+    /**
+     * Iterates through all the values in the LongFTree in order
+     * @return an iterable of all the values in the LongFTree
+     */
+    public Iterable<Value> values()
+    {
+        return () -> new ValueIterator(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Iterates through all the values in the LongFTree in order between min and max
+     * @param min key of the first key
+     * @param max key of the last key
+     * @return an iterable of all the values in the LongFTree between min and max (inclusive)
+     */
+    public Iterable<Value> values(long min, long max)
+    {
+        return () -> new ValueIterator(min, max);
+    }
+
+        /**
+         * Iterator over the values of the LongFTree that streams them from a cursor
+         */
+        private class ValueIterator implements Iterator<Value> {
+            final Cursor cursor = new Cursor();
+            final long max;
+
+            ValueIterator(long min, long max){
+                cursor.seek(min);
+                this.max = max;
+            }
+
+            public boolean hasNext(){
+                return cursor.isValid() && cursor.key() <= max;
+            }
+
+            public Value next(){
+                if (!hasNext()) throw new NoSuchElementException();
+                Value v = cursor.value();
+                cursor.next();
+                return v;
+            }
+        }
+
+    /**
+     * Opens a cursor positioned at the smallest key of the LongFTree
+     * The cursor must not be used after the LongFTree is modified (open a new one or call first/seek again)
+     * @return a new cursor
+     */
+    public Cursor cursor(){
+        Cursor c = new Cursor();
+        c.first();
+        return c;
+    }
+
+    /**
+     * Cursor that walks the LongFTree in order keeping only the path from the root to the current entry
+     * (works exactly like FTree.Cursor but key() returns the primitive key)
+     */
+    public class Cursor {
+        private Node[] path;
+        private int[] index;
+        private int depth; // Position of the current node in the path (-1 when the cursor is out of the LongFTree)
+
+        private Cursor(){
+            path = newPath(root.height + 1);
+            index = new int[root.height + 1];
+            depth = -1;
+        }
+
+        /**
+         * @return true if the cursor is on an entry, false if it went past the first or the last key
+         */
+        public boolean isValid(){
+            return depth >= 0;
+        }
+
+        /**
+         * @return the key where the cursor is
+         */
+        public long key(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].keys[index[depth]];
+        }
+
+        /**
+         * @return the value of the key where the cursor is
+         */
+        public Value value(){
+            if (depth < 0) throw new NoSuchElementException();
+            return path[depth].values[index[depth]];
+        }
+
+        /**
+         * Moves the cursor to the smallest key of the LongFTree
+         */
+        public void first(){
+            reset();
+            descendLeft(root);
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the biggest key of the LongFTree
+         */
+        public void last(){
+            reset();
+            descendRight(root);
+            backwardUp();
+        }
+
+        /**
+         * Moves the cursor to the smallest key greater than or equal to k, starting again from the root
+         * @param k key to seek
+         */
+        public void seek(long k){
+            reset();
+            Node n = root;
+            while (true){
+                int i = binarySearch(n, k);
+                push(n, i);
+                if (i < n.count && n.keys[i] == k) return; // Found the exact key
+                if (n.isLeaf()) break;
+                n = n.children[i];
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the next key in order
+         */
+        public void next(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            index[depth]++;
+            if (!n.isLeaf()){ // The next key is the smallest one of the right child
+                descendLeft(n.children[index[depth]]);
+            }
+            forwardUp();
+        }
+
+        /**
+         * Moves the cursor to the previous key in order
+         */
+        public void previous(){
+            if (depth < 0) return;
+            Node n = path[depth];
+            if (n.isLeaf()){
+                index[depth]--;
+            } else { // The previous key is the biggest one of the left child
+                descendRight(n.children[index[depth]]);
+            }
+            backwardUp();
+        }
+
+            private void reset(){
+                if (path.length < root.height + 1){
+                    path = newPath(root.height + 1);
+                    index = new int[root.height + 1];
+                }
+                depth = -1;
+            }
+
+            @SuppressWarnings("unchecked")
+            private Node[] newPath(int length){
+                return (Node[]) new LongFTree.Node[length];
+            }
+
+            private void push(Node n, int i){
+                depth++;
+                path[depth] = n;
+                index[depth] = i;
+            }
+
+            private void descendLeft(Node n){
+                while (true){
+                    push(n, 0);
+                    if (n.isLeaf()) return;
+                    n = n.children[0];
+                }
+            }
+
+            private void descendRight(Node n){
+                while (true){
+                    if (n.isLeaf()){
+                        push(n, n.count - 1);
+                        return;
+                    }
+                    push(n, n.count);
+                    n = n.children[n.count];
+                }
+            }
+
+            private void forwardUp(){
+                while (depth >= 0 && index[depth] >= path[depth].count){
+                    depth--;
+                }
+            }
+
+            private void backwardUp(){
+                while (depth >= 0 && index[depth] < 0){
+                    depth--;
+                    if (depth >= 0) index[depth]--;
+                }
+            }
+    }
+
+    /**
+     * @return the minimum key in the LongFTree or null if it is empty
+     */
+    public Long min()
+    {
+        if (root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[0]; // Travels to the leftmost node
+        }
+        return n.keys[0];
+    }
+
+    /**
+     * @return the maximum key in the LongFTree or null if it is empty
+     */
+    public Long max()
+    {
+        if (root.isEmpty()) return null;
+        Node n = root;
+        while (!n.isLeaf()){
+            n = n.children[n.count]; // Travels to the rightmost node
+        }
+        return n.keys[n.count - 1];
+    }
+
+    /**
+     * Determines the ammount of keys that are less than the given key
+     * @param k key to find the rank of
+     * @return the rank of the key in the LongFTree
+     */
+    public int rank(long k){
+        return rank(root, k, false);
+    }
+
+        /**
+         * Determines the ammount of keys that are less than (or equal to) the given key from a given node
+         * The offsets of the node give the keys before the child i at once, so each node costs only its binary search
+         * @param node Node to start the rank from
+         * @param k key to find the rank of
+         * @param inclusive true to count the key too if it's in the LongFTree
+         * @return the rank of the key in the subtree of the node
+         */
+        private int rank(Node node, long k, boolean inclusive){
+            int rank = 0;
+            while (true){
+                int i = binarySearch(node, k);
+                boolean found = i < node.count && node.keys[i] == k;
+                if (node.isLeaf()) return rank + ((found && inclusive) ? i + 1 : i);
+                if (found) return rank + (inclusive ? node.offsets[i + 1] : node.offsets[i + 1] - 1);
+                rank += node.offsets[i];
+                node = node.children[i];
+            }
+        }
+
+    /**
+     * Finds the key that is the n-th smallest key in the LongFTree
+     * @param n index of the key to find
+     * @return the n-th smallest key in the LongFTree or null if n is out of bounds
+     */
+    public Long select(int n){
+        if (n < 0 || n >= root.size) return null;
+        Node node = root;
+        while (!node.isLeaf()){
+            // The child is found with a binary search on the offsets of the node (the last child that starts at or before n)
+            int low = 0;
+            int high = node.count;
+            while (low < high){
+                int mid = (low + high + 1) >>> 1;
+                if (node.offsets[mid] <= n) low = mid;
+                else high = mid - 1;
+            }
+            // The key i comes right after the keys of the child i
+            if (low < node.count && n == node.offsets[low + 1] - 1) return node.keys[low];
+            n -= node.offsets[low];
+            node = node.children[low];
+        }
+        return node.keys[n];
+    }
+
+    /**
+     * Finds the key that is the largest key less than or equal to the given key
+     * @param k key to find the floor of
+     * @return the floor of the key or null if there is none
+     */
+    public Long floor(long k){
+        Node node = root;
+        boolean found = false;
+        long floor = 0;
+        while (!node.isEmpty()){
+            int i = binarySearch(node, k);
+            if (i < node.count && node.keys[i] == k) return k; // Found the exact key
+            if (i > 0){ // The key before i is a candidate, the left subtree may still have a closer one
+                found = true;
+                floor = node.keys[i - 1];
+            }
+            if (node.isLeaf()) break;
+            node = node.children[i];
+        }
+        return found ? (Long) floor : null;
+    }
+
+    /**
+     * Finds the key that is the smallest key greater than or equal to the given key
+     * @param k key to find the ceiling of
+     * @return the ceiling of the key or null if there is none
+     */
+    public Long ceiling(long k){
+        Node node = root;
+        boolean found = false;
+        long ceiling = 0;
+        while (!node.isEmpty()){
+            int i = binarySearch(node, k);
+            if (i < node.count && node.keys[i] == k) return k; // Found the exact key
+            if (i < node.count){ // The key at i is a candidate, the child before it may still have a closer one
+                found = true;
+                ceiling = node.keys[i];
+            }
+            if (node.isLeaf()) break;
+            node = node.children[i];
+        }
+        return found ? (Long) ceiling : null;
+    }
+
+    /**
+     * Binary search for the key in the node
+     * @param n Node to search the key in
+     * @param k key to search
+     * @return the index of the key in the node or the index of the child where it could be
+     */
+    private int binarySearch(Node n, long k){
+        int low = 0;
+        int high = n.count - 1;
+
+        while (low <= high){
+            int mid = (high + low) >>> 1;
+            long midKey = n.keys[mid];
+
+            if (k == midKey) return mid;
+            else if (k < midKey) high = mid - 1;
+            else low = mid + 1;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,1126 @@
+package ftree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * QuickSort
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class QuickSort extends Sort {
+
+    private static final int DEFAULT_CUTOFF = 16; // Subarrays this small are sorted with insertion sort
+    private static final int PARALLEL_THRESHOLD = 1 << 13; // Smaller subarrays are sorted by one thread
+
+    /**
+     * Sorts the array using the quicksort algorithm
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     */
+    public static <T extends Comparable<T>> void sort(T[] a){ 
+        sort(a, 0, a.length - 1, DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Sorts one part of the array specified by the low and high indexes
+     * Only the smaller part is sorted with recursion (the bigger one by the loop), so the stack stays O(log n)
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     */
+    private static <T extends Comparable<T>> void sort(T[] a, int low, int high, int cutoff){
+        while (high > low + cutoff){
+            int j = partition(a, low, high);
+            if (j - low < high - j){
+                sort(a, low, j - 1, cutoff);
+                low = j + 1;
+            } else {
+                sort(a, j + 1, high, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    /**
+     * Partitions the array into two parts
+     * @param <T> generic type for the sorted array
+     * @param a array to be partitioned
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     * @return index of the partitioning element
+     */
+    private static <T extends Comparable<T>> int partition(T[] a, int low, int high){
+        int randomIndex = low + ThreadLocalRandom.current().nextInt(high - low + 1);
+        exchange(a, low, randomIndex); // Move the random element to the first position to use as a comparison element
+
+        int i = low, j = high + 1;
+        T v = a[low]; // Pivô for comparison
+        
+        while (true){
+            while (less(a[++i], v)) if (i == high) break; // i -> Search for elements greater than the pivot
+            while (less(v, a[--j])) if (j == low) break; // j -> Search for elements less than the pivot
+            if (i >= j) break; // If the pointers cross, the partition is complete
+            exchange(a, i, j); // Exchange the elements that are in the wrong partition
+        }
+ 
+        exchange(a, low, j);  // Swap the pivot with the element at the partition index (Its apropiate position)
+        return j; 
+    }
+
+
+    /**
+     * Sorts the array using the quicksort algorithm with median of three partitioning and insertion sort for small subarrays (cutoff)
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     */
+    public static <T extends Comparable<T>> void medianSort(T[] a){
+        medianSort(a, 0, a.length - 1, DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Sorts one part of the array specified by the low and high indexes using median of three partitioning
+     * Only the smaller part is sorted with recursion, so even an input that defeats the median of three
+     * (quadratic time) can't overflow the stack
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     */
+    private static <T extends Comparable<T>> void medianSort(T[] a, int low, int high, int cutoff){
+        cutoff = Math.max(cutoff, 2); // The median of three partition needs 3 elements
+        while (high > low + cutoff){
+            int j = medianPartition(a, low, high);
+            if (j - low < high - j){
+                medianSort(a, low, j - 1, cutoff);
+                low = j + 1;
+            } else {
+                medianSort(a, j + 1, high, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    /**
+     * Partitions the array into two parts using median of three partitioning
+     * @param <T> generic type for the sorted array
+     * @param a array to be partitioned
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     * @return index of the partitioning element
+     */
+    public static <T extends Comparable<T>> int medianPartition(T [] a, int low, int high){
+        int mid = (low + high) / 2;
+        if (less(a[mid], a[low])) exchange(a, low, mid);
+        if (less(a[high], a[low])) exchange(a, low, high);
+        if (less(a[high], a[mid])) exchange(a, mid, high);
+
+        exchange(a, low + 1, mid);
+        T v = a[low + 1]; 
+        int i = low + 1, j = high;
+
+        while (true){
+            while (less(a[++i], v));
+            while (less(v, a[--j]));
+            if (i >= j) break;
+            exchange(a, i, j);
+        }
+
+        exchange(a, low + 1, j);
+        return j;
+    }
+
+
+    /**
+     * Sorts the array using introsort: quicksort with Bentley-McIlroy three-way partitioning around a median of three
+     * (Tukey's ninther, the median of three medians of three, for more than 40 keys),
+     * that switches to heapsort when the recursion gets deeper than 2*log2(n) (so it's O(n log n) for any input)
+     * The keys equal to the pivot end up in the middle and are never looked at again, so an array with few
+     * distinct keys (or all equal) takes linear time per distinct key
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     */
+    public static <T extends Comparable<T>> void introSort(T[] a){
+        introSort(a, DEFAULT_CUTOFF);
+    }
+
+    private static <T extends Comparable<T>> void introSort(T[] a, int cutoff){
+        int depth = 0;
+        for (int n = a.length; n > 1; n >>= 1) depth += 2;
+        introSort(a, 0, a.length - 1, depth, cutoff);
+    }
+
+    /**
+     * Sorts one part of the array with introsort
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     * @param depth number of partitions left before switching to heapsort
+     */
+    private static <T extends Comparable<T>> void introSort(T[] a, int low, int high, int depth, int cutoff){
+        while (high > low + cutoff){
+            if (depth-- == 0){ // Too many bad pivots, heapsort can't be defeated
+                heapSort(a, low, high);
+                return;
+            }
+
+            // Median of three (or ninther) moved to a[low] as the pivot
+            int n = high - low + 1;
+            int mid = (low + high) >>> 1;
+            if (n > 40){
+                int eps = n / 8;
+                mid = median3(a, median3(a, low, low + eps, low + eps + eps), median3(a, mid - eps, mid, mid + eps),
+                        median3(a, high - eps - eps, high - eps, high));
+            } else {
+                mid = median3(a, low, mid, high);
+            }
+            exchange(a, low, mid);
+            T v = a[low];
+
+            // Bentley-McIlroy: the keys equal to v are kept at both ends (low..p and q..high) while partitioning
+            int i = low, j = high + 1;
+            int p = low, q = high + 1;
+            while (true){
+                while (less(a[++i], v)) if (i == high) break;
+                while (less(v, a[--j])) if (j == low) break;
+                if (i == j && equal(a[i], v)) exchange(a, ++p, i); // The pointers met on a key equal to v
+                if (i >= j) break;
+                exchange(a, i, j);
+                if (equal(a[i], v)) exchange(a, ++p, i);
+                if (equal(a[j], v)) exchange(a, --q, j);
+            }
+
+            // Moves the equal keys from the ends to the middle: a[low..j] < v, a[j+1..i-1] == v, a[i..high] > v
+            i = j + 1;
+            for (int k = low; k <= p; k++) exchange(a, k, j--);
+            for (int k = high; k >= q; k--) exchange(a, k, i++);
+
+            // Recursion on the smaller part, the loop takes the bigger one
+            if (j - low < high - i){
+                introSort(a, low, j, depth, cutoff);
+                low = i;
+            } else {
+                introSort(a, i, high, depth, cutoff);
+                high = j;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    /**
+     * Finds the median of three keys of the array without moving them
+     * @param <T> generic type of the array
+     * @param a array with the keys
+     * @param i index of the first key
+     * @param j index of the second key
+     * @param k index of the third key
+     * @return index of the median key
+     */
+    private static <T extends Comparable<T>> int median3(T[] a, int i, int j, int k){
+        return less(a[i], a[j])
+                ? (less(a[j], a[k]) ? j : less(a[i], a[k]) ? k : i)
+                : (less(a[k], a[j]) ? j : less(a[k], a[i]) ? k : i);
+    }
+
+    /**
+     * Sorts one part of the array using heapsort (the fallback of introsort)
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     */
+    private static <T extends Comparable<T>> void heapSort(T[] a, int low, int high){
+        int n = high - low + 1;
+        for (int k = n / 2 - 1; k >= 0; k--) sink(a, low, k, n);
+        while (n > 1){
+            exchange(a, low, low + --n); // The biggest key goes to the end
+            sink(a, low, 0, n);
+        }
+    }
+
+    /**
+     * Moves the key k of a max heap stored in a[low..low+n-1] down until its children are not bigger
+     * @param <T> generic type for the sorted array
+     * @param a array with the heap
+     * @param low index of the root of the heap
+     * @param k index in the heap of the key to move (0 is the root)
+     * @param n number of keys in the heap
+     */
+    private static <T extends Comparable<T>> void sink(T[] a, int low, int k, int n){
+        T v = a[low + k];
+        while (2 * k + 1 < n){
+            int child = 2 * k + 1;
+            if (child + 1 < n && less(a[low + child], a[low + child + 1])) child++;
+            if (!less(v, a[low + child])) break;
+            a[low + k] = a[low + child];
+            k = child;
+        }
+        a[low + k] = v;
+    }
+
+    /**
+     * Sorts the array using insertion sort algorithm (used for small subarrays)
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     */
+    public static <T extends Comparable<T>> void insertionSort(T[] a, int low, int high){
+        for (int i = low + 1; i <= high; i++){
+            T temp = a[i]; 
+            int j;
+            for(j = i - 1; j >= low && less(temp,a[j]); j--){
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = temp;
+        }
+    }
+
+    /**
+     * Returns the k-th smallest element of the array
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param n index of the k-th smallest element
+     * @return the k-th smallest element of the array
+     */
+    public static <T extends Comparable<T>> T quickSelect(T[] a, int n){
+        int low = 0, high = a.length - 1;
+        while (high > low){
+            int j = partition(a, low, high);
+    
+            if (j < n) low = j + 1;
+            else if (j > n) high = j - 1;
+            else return a[j];
+        }
+        return a[low];
+    }
+
+    /**
+     * Puts the elements of every rank in its place (a[r] is the r-th smallest element for each rank r)
+     * with one quickselect for all the ranks: after each partition the ranks are split between the two halves
+     * and a half without ranks is never looked at again, so m ranks cost about O(n log m) instead of m quickselects
+     * The array is only partitioned, not sorted (the elements between two ranks are in any order)
+     * @param <T> generic type for the array
+     * @param a array to be partitioned
+     * @param ranks ranks to find (0 is the smallest), in any order and with repetitions
+     */
+    public static <T extends Comparable<T>> void multiSelect(T[] a, int... ranks){
+        int[] r = sortedRanks(ranks, a.length);
+        multiSelect(a, 0, a.length - 1, r, 0, r.length - 1);
+    }
+
+    /**
+     * Finds the ranks r[first..last] (sorted) in a[low..high]
+     * Only the half with fewer ranks is done with recursion, the loop takes the other one
+     * @param <T> generic type for the array
+     * @param a array to be partitioned
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     * @param r sorted ranks
+     * @param first index of the first rank inside the subarray
+     * @param last index of the last rank inside the subarray
+     */
+    private static <T extends Comparable<T>> void multiSelect(T[] a, int low, int high, int[] r, int first, int last){
+        while (first <= last){
+            if (high - low <= DEFAULT_CUTOFF){
+                insertionSort(a, low, high);
+                return;
+            }
+            int j = partition(a, low, high);
+            int mid = lowerBound(r, first, last, j), after = lowerBound(r, mid, last, j + 1); // r[mid..after-1] == j are done
+            if (mid - first < last - after){
+                multiSelect(a, low, j - 1, r, first, mid - 1);
+                low = j + 1;
+                first = after;
+            } else {
+                multiSelect(a, j + 1, high, r, after, last);
+                high = j - 1;
+                last = mid - 1;
+            }
+        }
+    }
+
+    /**
+     * Same as multiSelect(T[], int...) for an array of ints
+     * @param a array to be partitioned
+     * @param ranks ranks to find (0 is the smallest)
+     */
+    public static void multiSelect(int[] a, int... ranks){
+        int[] r = sortedRanks(ranks, a.length);
+        multiSelect(a, 0, a.length - 1, r, 0, r.length - 1);
+    }
+
+    private static void multiSelect(int[] a, int low, int high, int[] r, int first, int last){
+        while (first <= last){
+            if (high - low <= DEFAULT_CUTOFF){
+                insertionSort(a, low, high);
+                return;
+            }
+            int j = partition(a, low, high);
+            int mid = lowerBound(r, first, last, j), after = lowerBound(r, mid, last, j + 1);
+            if (mid - first < last - after){
+                multiSelect(a, low, j - 1, r, first, mid - 1);
+                low = j + 1;
+                first = after;
+            } else {
+                multiSelect(a, j + 1, high, r, after, last);
+                high = j - 1;
+                last = mid - 1;
+            }
+        }
+    }
+
+    /**
+     * Same as multiSelect(T[], int...) for an array of longs
+     * @param a array to be partitioned
+     * @param ranks ranks to find (0 is the smallest)
+     */
+    public static void multiSelect(long[] a, int... ranks){
+        int[] r = sortedRanks(ranks, a.length);
+        multiSelect(a, 0, a.length - 1, r, 0, r.length - 1);
+    }
+
+    private static void multiSelect(long[] a, int low, int high, int[] r, int first, int last){
+        while (first <= last){
+            if (high - low <= DEFAULT_CUTOFF){
+                insertionSort(a, low, high);
+                return;
+            }
+            int j = partition(a, low, high);
+            int mid = lowerBound(r, first, last, j), after = lowerBound(r, mid, last, j + 1);
+            if (mid - first < last - after){
+                multiSelect(a, low, j - 1, r, first, mid - 1);
+                low = j + 1;
+                first = after;
+            } else {
+                multiSelect(a, j + 1, high, r, after, last);
+                high = j - 1;
+                last = mid - 1;
+            }
+        }
+    }
+
+    /**
+     * Same as multiSelect(T[], int...) for an array of doubles, in the order of Double.compare except that
+     * -0.0 and 0.0 count as equal (the NaNs are moved to the end, they have the biggest ranks)
+     * @param a array to be partitioned
+     * @param ranks ranks to find (0 is the smallest)
+     */
+    public static void multiSelect(double[] a, int... ranks){
+        int[] r = sortedRanks(ranks, a.length);
+        int high = moveNaNsToEnd(a);
+        multiSelect(a, 0, high, r, 0, lowerBound(r, 0, r.length - 1, high + 1) - 1);
+    }
+
+    private static void multiSelect(double[] a, int low, int high, int[] r, int first, int last){
+        while (first <= last){
+            if (high - low <= DEFAULT_CUTOFF){
+                insertionSort(a, low, high);
+                return;
+            }
+            int j = partition(a, low, high);
+            int mid = lowerBound(r, first, last, j), after = lowerBound(r, mid, last, j + 1);
+            if (mid - first < last - after){
+                multiSelect(a, low, j - 1, r, first, mid - 1);
+                low = j + 1;
+                first = after;
+            } else {
+                multiSelect(a, j + 1, high, r, after, last);
+                high = j - 1;
+                last = mid - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the percentiles of the samples with one multiSelect (the samples are partitioned, not sorted)
+     * The p percentile is the sample of rank ceil(p * n) - 1 (nearest rank), so 0.5 is the median and 0.999 the p999
+     * @param samples array of samples (not empty)
+     * @param fractions percentiles to find, between 0 and 1
+     * @return the sample of each percentile, in the order of the fractions
+     */
+    public static long[] percentiles(long[] samples, double... fractions){
+        int[] ranks = percentileRanks(samples.length, fractions);
+        multiSelect(samples, ranks);
+        long[] result = new long[ranks.length];
+        for (int i = 0; i < ranks.length; i++) result[i] = samples[ranks[i]];
+        return result;
+    }
+
+    /**
+     * Returns the percentiles of the samples with one multiSelect (the samples are partitioned, not sorted)
+     * @param samples array of samples (not empty)
+     * @param fractions percentiles to find, between 0 and 1
+     * @return the sample of each percentile, in the order of the fractions
+     */
+    public static double[] percentiles(double[] samples, double... fractions){
+        int[] ranks = percentileRanks(samples.length, fractions);
+        multiSelect(samples, ranks);
+        double[] result = new double[ranks.length];
+        for (int i = 0; i < ranks.length; i++) result[i] = samples[ranks[i]];
+        return result;
+    }
+
+    private static int[] percentileRanks(int n, double[] fractions){
+        if (n == 0) throw new IllegalArgumentException("No samples");
+        int[] ranks = new int[fractions.length];
+        for (int i = 0; i < fractions.length; i++){
+            double p = fractions[i];
+            if (!(p >= 0.0 && p <= 1.0)) throw new IllegalArgumentException("Percentile out of [0, 1]: " + p);
+            ranks[i] = Math.max(0, (int) Math.ceil(p * n) - 1);
+        }
+        return ranks;
+    }
+
+    /**
+     * Checks the ranks and returns a sorted copy of them
+     * @param ranks ranks asked for
+     * @param n number of elements of the array
+     * @return the sorted ranks
+     */
+    private static int[] sortedRanks(int[] ranks, int n){
+        int[] r = ranks.clone();
+        for (int x : r){
+            if (x < 0 || x >= n) throw new IndexOutOfBoundsException("Rank " + x + " of " + n + " elements");
+        }
+        sort(r, 0, r.length - 1, DEFAULT_CUTOFF);
+        return r;
+    }
+
+    /**
+     * Returns the index of the first rank in r[first..last] that is not less than key (last + 1 if there is none)
+     */
+    private static int lowerBound(int[] r, int first, int last, int key){
+        int high = last + 1;
+        while (first < high){
+            int mid = (first + high) >>> 1;
+            if (r[mid] < key) first = mid + 1;
+            else high = mid;
+        }
+        return first;
+    }
+
+    /**
+     * Quickselect with a comparator on a[low..high] (used by TopK): a[n] ends up with the element of that rank
+     */
+    static <T> void select(T[] a, int low, int high, int n, Comparator<? super T> c){
+        while (high > low){
+            int j = partition(a, low, high, c);
+            if (j < n) low = j + 1;
+            else if (j > n) high = j - 1;
+            else return;
+        }
+    }
+
+    static void select(long[] a, int low, int high, int n){
+        while (high > low){
+            int j = partition(a, low, high);
+            if (j < n) low = j + 1;
+            else if (j > n) high = j - 1;
+            else return;
+        }
+    }
+
+    static void select(double[] a, int low, int high, int n){
+        while (high > low){
+            int j = partition(a, low, high);
+            if (j < n) low = j + 1;
+            else if (j > n) high = j - 1;
+            else return;
+        }
+    }
+
+    /**
+     * Sorts the array with a comparator using the quicksort algorithm
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param c comparator that gives the order of the elements
+     */
+    public static <T> void sort(T[] a, Comparator<? super T> c){
+        sort(a, 0, a.length - 1, c, DEFAULT_CUTOFF);
+    }
+
+    private static <T> void sort(T[] a, int low, int high, Comparator<? super T> c, int cutoff){
+        while (high > low + cutoff){ // Recursion only on the smaller part, like sort(T[])
+            int j = partition(a, low, high, c);
+            if (j - low < high - j){
+                sort(a, low, j - 1, c, cutoff);
+                low = j + 1;
+            } else {
+                sort(a, j + 1, high, c, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high, c);
+    }
+
+    /**
+     * Partitions the array into two parts with a comparator (the same as partition)
+     * @param <T> generic type for the sorted array
+     * @param a array to be partitioned
+     * @param low index of the first element of the subarray
+     * @param high index of the last element of the subarray
+     * @param c comparator that gives the order of the elements
+     * @return index of the partitioning element
+     */
+    private static <T> int partition(T[] a, int low, int high, Comparator<? super T> c){
+        int randomIndex = low + ThreadLocalRandom.current().nextInt(high - low + 1);
+        T t = a[low]; a[low] = a[randomIndex]; a[randomIndex] = t;
+
+        int i = low, j = high + 1;
+        T v = a[low];
+
+        while (true){
+            while (c.compare(a[++i], v) < 0) if (i == high) break;
+            while (c.compare(v, a[--j]) < 0) if (j == low) break;
+            if (i >= j) break;
+            t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+
+        t = a[low]; a[low] = a[j]; a[j] = t;
+        return j;
+    }
+
+    private static <T> void insertionSort(T[] a, int low, int high, Comparator<? super T> c){
+        for (int i = low + 1; i <= high; i++){
+            T temp = a[i];
+            int j;
+            for (j = i - 1; j >= low && c.compare(temp, a[j]) < 0; j--){
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = temp;
+        }
+    }
+
+    /**
+     * Sorts the array of ints using the quicksort algorithm (without boxing, the elements are compared with <)
+     * @param a array to be sorted
+     */
+    public static void sort(int[] a){
+        sort(a, 0, a.length - 1, DEFAULT_CUTOFF);
+    }
+
+    private static void sort(int[] a, int low, int high, int cutoff){
+        while (high > low + cutoff){ // Recursion only on the smaller part, like sort(T[])
+            int j = partition(a, low, high);
+            if (j - low < high - j){
+                sort(a, low, j - 1, cutoff);
+                low = j + 1;
+            } else {
+                sort(a, j + 1, high, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    private static int partition(int[] a, int low, int high){
+        int randomIndex = low + ThreadLocalRandom.current().nextInt(high - low + 1);
+        int t = a[low]; a[low] = a[randomIndex]; a[randomIndex] = t;
+
+        int i = low, j = high + 1;
+        int v = a[low];
+
+        while (true){
+            while (a[++i] < v) if (i == high) break;
+            while (v < a[--j]) if (j == low) break;
+            if (i >= j) break;
+            t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+
+        t = a[low]; a[low] = a[j]; a[j] = t;
+        return j;
+    }
+
+    private static void insertionSort(int[] a, int low, int high){
+        for (int i = low + 1; i <= high; i++){
+            int temp = a[i];
+            int j;
+            for (j = i - 1; j >= low && temp < a[j]; j--){
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = temp;
+        }
+    }
+
+    /**
+     * Sorts the array of longs using the quicksort algorithm (without boxing, the elements are compared with <)
+     * @param a array to be sorted
+     */
+    public static void sort(long[] a){
+        sort(a, 0, a.length - 1, DEFAULT_CUTOFF);
+    }
+
+    private static void sort(long[] a, int low, int high, int cutoff){
+        while (high > low + cutoff){ // Recursion only on the smaller part, like sort(T[])
+            int j = partition(a, low, high);
+            if (j - low < high - j){
+                sort(a, low, j - 1, cutoff);
+                low = j + 1;
+            } else {
+                sort(a, j + 1, high, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    private static int partition(long[] a, int low, int high){
+        int randomIndex = low + ThreadLocalRandom.current().nextInt(high - low + 1);
+        long t = a[low]; a[low] = a[randomIndex]; a[randomIndex] = t;
+
+        int i = low, j = high + 1;
+        long v = a[low];
+
+        while (true){
+            while (a[++i] < v) if (i == high) break;
+            while (v < a[--j]) if (j == low) break;
+            if (i >= j) break;
+            t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+
+        t = a[low]; a[low] = a[j]; a[j] = t;
+        return j;
+    }
+
+    private static void insertionSort(long[] a, int low, int high){
+        for (int i = low + 1; i <= high; i++){
+            long temp = a[i];
+            int j;
+            for (j = i - 1; j >= low && temp < a[j]; j--){
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = temp;
+        }
+    }
+
+    /**
+     * Sorts the array of doubles using the quicksort algorithm in the order of Double.compare
+     * (-0.0 before 0.0 and NaN at the end, like Arrays.sort)
+     * The NaNs are moved to the end first, the rest is sorted with < and then the zeros are fixed
+     * @param a array to be sorted
+     */
+    public static void sort(double[] a){
+        sort(a, DEFAULT_CUTOFF);
+    }
+
+    private static void sort(double[] a, int cutoff){
+        int high = moveNaNsToEnd(a);
+        sort(a, 0, high, cutoff);
+        fixZeros(a, high);
+    }
+
+    private static void sort(double[] a, int low, int high, int cutoff){
+        while (high > low + cutoff){ // Recursion only on the smaller part, like sort(T[])
+            int j = partition(a, low, high);
+            if (j - low < high - j){
+                sort(a, low, j - 1, cutoff);
+                low = j + 1;
+            } else {
+                sort(a, j + 1, high, cutoff);
+                high = j - 1;
+            }
+        }
+        insertionSort(a, low, high);
+    }
+
+    private static int partition(double[] a, int low, int high){
+        int randomIndex = low + ThreadLocalRandom.current().nextInt(high - low + 1);
+        double t = a[low]; a[low] = a[randomIndex]; a[randomIndex] = t;
+
+        int i = low, j = high + 1;
+        double v = a[low];
+
+        while (true){
+            while (a[++i] < v) if (i == high) break;
+            while (v < a[--j]) if (j == low) break;
+            if (i >= j) break;
+            t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+
+        t = a[low]; a[low] = a[j]; a[j] = t;
+        return j;
+    }
+
+    private static void insertionSort(double[] a, int low, int high){
+        for (int i = low + 1; i <= high; i++){
+            double temp = a[i];
+            int j;
+            for (j = i - 1; j >= low && temp < a[j]; j--){
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = temp;
+        }
+    }
+
+    /**
+     * Moves the NaNs to the end of the array (< is always false with them)
+     * @param a array of doubles
+     * @return index of the last element that is not NaN
+     */
+    private static int moveNaNsToEnd(double[] a){
+        int high = a.length - 1;
+        for (int i = high; i >= 0; i--){
+            if (Double.isNaN(a[i])){
+                a[i] = a[high];
+                a[high--] = Double.NaN;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Puts the -0.0 before the 0.0 (< sees them as equal so they end up mixed in the middle of the sorted array)
+     * @param a sorted array of doubles
+     * @param high index of the last element that is not NaN
+     */
+    private static void fixZeros(double[] a, int high){
+        int first = 0, last = high;
+        while (first < last){ // Binary search for the first zero
+            int mid = (first + last) >>> 1;
+            if (a[mid] < 0.0) first = mid + 1;
+            else last = mid;
+        }
+        int negative = 0, end = first;
+        for (; end <= high && a[end] == 0.0; end++){
+            if (Double.doubleToRawLongBits(a[end]) != 0) negative++;
+        }
+        for (int i = first; i < end; i++) a[i] = (i < first + negative) ? -0.0 : 0.0;
+    }
+
+    /**
+     * Sorts the array with the quicksort algorithm using every thread of the common ForkJoinPool:
+     * after each partition the two halves are sorted at the same time, until they are small enough for one thread
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     */
+    public static <T extends Comparable<T>> void parallelSort(T[] a){
+        parallelSort(a, Comparator.<T>naturalOrder());
+    }
+
+    /**
+     * Sorts the array with a comparator using the quicksort algorithm and every thread of the common ForkJoinPool
+     * @param <T> generic type for the sorted array
+     * @param a array to be sorted
+     * @param c comparator that gives the order of the elements
+     */
+    public static <T> void parallelSort(T[] a, Comparator<? super T> c){
+        ForkJoinPool.commonPool().invoke(new ObjectSortTask<>(a, 0, a.length - 1, c, DEFAULT_CUTOFF));
+    }
+
+    /**
+     * Sorts the array of ints with the quicksort algorithm and every thread of the common ForkJoinPool
+     * @param a array to be sorted
+     */
+    public static void parallelSort(int[] a){
+        ForkJoinPool.commonPool().invoke(new IntSortTask(a, 0, a.length - 1, DEFAULT_CUTOFF));
+    }
+
+    /**
+     * Sorts the array of longs with the quicksort algorithm and every thread of the common ForkJoinPool
+     * @param a array to be sorted
+     */
+    public static void parallelSort(long[] a){
+        ForkJoinPool.commonPool().invoke(new LongSortTask(a, 0, a.length - 1, DEFAULT_CUTOFF));
+    }
+
+    /**
+     * Sorts the array of doubles with the quicksort algorithm and every thread of the common ForkJoinPool
+     * (in the order of Double.compare, like sort(double[]))
+     * @param a array to be sorted
+     */
+    public static void parallelSort(double[] a){
+        parallelSort(a, DEFAULT_CUTOFF);
+    }
+
+    private static void parallelSort(double[] a, int cutoff){
+        int high = moveNaNsToEnd(a);
+        ForkJoinPool.commonPool().invoke(new DoubleSortTask(a, 0, high, cutoff));
+        fixZeros(a, high);
+    }
+
+    /**
+     * Sorts a[low..high], forking one of the halves after each partition
+     */
+    private static final class ObjectSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] a;
+        private final int low, high;
+        private final Comparator<? super T> c;
+        private final int cutoff;
+
+        ObjectSortTask(T[] a, int low, int high, Comparator<? super T> c, int cutoff){
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.c = c;
+            this.cutoff = cutoff;
+        }
+
+        protected void compute(){
+            if (high - low < PARALLEL_THRESHOLD){
+                sort(a, low, high, c, cutoff);
+                return;
+            }
+            int j = partition(a, low, high, c);
+            invokeAll(new ObjectSortTask<>(a, low, j - 1, c, cutoff), new ObjectSortTask<>(a, j + 1, high, c, cutoff));
+        }
+    }
+
+    private static final class IntSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] a;
+        private final int low, high, cutoff;
+
+        IntSortTask(int[] a, int low, int high, int cutoff){
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+        }
+
+        protected void compute(){
+            if (high - low < PARALLEL_THRESHOLD){
+                sort(a, low, high, cutoff);
+                return;
+            }
+            int j = partition(a, low, high);
+            invokeAll(new IntSortTask(a, low, j - 1, cutoff), new IntSortTask(a, j + 1, high, cutoff));
+        }
+    }
+
+    private static final class LongSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long[] a;
+        private final int low, high, cutoff;
+
+        LongSortTask(long[] a, int low, int high, int cutoff){
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+        }
+
+        protected void compute(){
+            if (high - low < PARALLEL_THRESHOLD){
+                sort(a, low, high, cutoff);
+                return;
+            }
+            int j = partition(a, low, high);
+            invokeAll(new LongSortTask(a, low, j - 1, cutoff), new LongSortTask(a, j + 1, high, cutoff));
+        }
+    }
+
+    private static final class DoubleSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] a;
+        private final int low, high, cutoff;
+
+        DoubleSortTask(double[] a, int low, int high, int cutoff){
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+        }
+
+        protected void compute(){
+            if (high - low < PARALLEL_THRESHOLD){
+                sort(a, low, high, cutoff);
+                return;
+            }
+            int j = partition(a, low, high);
+            invokeAll(new DoubleSortTask(a, low, j - 1, cutoff), new DoubleSortTask(a, j + 1, high, cutoff));
+        }
+    }
+
+    /**
+     * Sorter
+     * The sorts of QuickSort with their own insertion sort cutoff (QuickSort uses 16)
+     * A Sorter never changes, so one instance can be shared by any number of threads,
+     * and the pivots come from ThreadLocalRandom so the threads never wait for each other
+     */
+    public static final class Sorter {
+
+        private static final int[] CANDIDATES = { 4, 8, 12, 16, 24, 32, 48, 64 };
+        private static final int CALIBRATION_SIZE = 1 << 12;
+        private static final int CALIBRATION_ROUNDS = 5;
+
+        private final int cutoff;
+
+        /**
+         * Creates a sorter that uses insertion sort for subarrays of at most cutoff + 1 elements
+         * @param cutoff size under which insertion sort is used (0 to always partition)
+         */
+        public Sorter(int cutoff){
+            if (cutoff < 0) throw new IllegalArgumentException("Negative cutoff: " + cutoff);
+            this.cutoff = cutoff;
+        }
+
+        /**
+         * Returns a sorter with the cutoff that was the fastest on this machine
+         * (measured once, the first time this is called, sorting a few small arrays with every candidate cutoff)
+         * @return the calibrated sorter
+         */
+        public static Sorter calibrated(){
+            return Calibration.SORTER;
+        }
+
+        /**
+         * Returns the insertion sort cutoff of this sorter
+         * @return the cutoff
+         */
+        public int cutoff(){
+            return cutoff;
+        }
+
+        /**
+         * Same as QuickSort.sort(T[]) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         */
+        public <T extends Comparable<T>> void sort(T[] a){
+            QuickSort.sort(a, 0, a.length - 1, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.medianSort(T[]) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         */
+        public <T extends Comparable<T>> void medianSort(T[] a){
+            QuickSort.medianSort(a, 0, a.length - 1, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.introSort(T[]) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         */
+        public <T extends Comparable<T>> void introSort(T[] a){
+            QuickSort.introSort(a, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.sort(T[], Comparator) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         * @param c comparator that gives the order of the elements
+         */
+        public <T> void sort(T[] a, Comparator<? super T> c){
+            QuickSort.sort(a, 0, a.length - 1, c, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.sort(int[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void sort(int[] a){
+            QuickSort.sort(a, 0, a.length - 1, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.sort(long[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void sort(long[] a){
+            QuickSort.sort(a, 0, a.length - 1, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.sort(double[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void sort(double[] a){
+            QuickSort.sort(a, cutoff);
+        }
+
+        /**
+         * Same as QuickSort.parallelSort(T[]) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         */
+        public <T extends Comparable<T>> void parallelSort(T[] a){
+            parallelSort(a, Comparator.<T>naturalOrder());
+        }
+
+        /**
+         * Same as QuickSort.parallelSort(T[], Comparator) with the cutoff of this sorter
+         * @param <T> generic type for the sorted array
+         * @param a array to be sorted
+         * @param c comparator that gives the order of the elements
+         */
+        public <T> void parallelSort(T[] a, Comparator<? super T> c){
+            ForkJoinPool.commonPool().invoke(new ObjectSortTask<>(a, 0, a.length - 1, c, cutoff));
+        }
+
+        /**
+         * Same as QuickSort.parallelSort(int[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void parallelSort(int[] a){
+            ForkJoinPool.commonPool().invoke(new IntSortTask(a, 0, a.length - 1, cutoff));
+        }
+
+        /**
+         * Same as QuickSort.parallelSort(long[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void parallelSort(long[] a){
+            ForkJoinPool.commonPool().invoke(new LongSortTask(a, 0, a.length - 1, cutoff));
+        }
+
+        /**
+         * Same as QuickSort.parallelSort(double[]) with the cutoff of this sorter
+         * @param a array to be sorted
+         */
+        public void parallelSort(double[] a){
+            QuickSort.parallelSort(a, cutoff);
+        }
+
+        /**
+         * Finds the fastest cutoff: every round sorts the same random Integer arrays with each candidate
+         * and the candidate with the best time of all the rounds wins (the first rounds also warm up the JIT)
+         * @return sorter with the fastest cutoff
+         */
+        private static Sorter calibrate(){
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Integer[] input = new Integer[CALIBRATION_SIZE];
+            for (int i = 0; i < input.length; i++) input[i] = random.nextInt();
+            Integer[] work = new Integer[input.length];
+
+            long[] best = new long[CANDIDATES.length];
+            Arrays.fill(best, Long.MAX_VALUE);
+            for (int round = 0; round < CALIBRATION_ROUNDS; round++){
+                for (int c = 0; c < CANDIDATES.length; c++){
+                    long start = System.nanoTime();
+                    for (int k = 0; k < 8; k++){
+                        System.arraycopy(input, 0, work, 0, input.length);
+                        QuickSort.sort(work, 0, work.length - 1, CANDIDATES[c]);
+                    }
+                    best[c] = Math.min(best[c], System.nanoTime() - start);
+                }
+            }
+
+            int fastest = 0;
+            for (int c = 1; c < CANDIDATES.length; c++) if (best[c] < best[fastest]) fastest = c;
+            return new Sorter(CANDIDATES[fastest]);
+        }
+
+        /**
+         * Holder of the calibrated sorter, so the calibration runs only if calibrated() is called
+         */
+        private static final class Calibration {
+            static final Sorter SORTER = calibrate();
+        }
+    }
+
+    public static void main(String[] args) {
+    }
+}
\ No newline at end of file
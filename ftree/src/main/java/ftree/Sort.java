@@ -1,3 +1,5 @@
+package ftree;
+
 /**
  * QuickSort
  * @author Daniel Pantyukhov
@@ -10,6 +12,11 @@ public class Sort {
         return v.compareTo(w) < 0;
     }
 
+    protected static <T extends Comparable<T>> boolean equal(T v, T w)
+    {
+        return v.compareTo(w) == 0;
+    }
+
     protected static <T extends Comparable<T>> void exchange(T[] a, int i, int j)
     {
         T t = a[i];
@@ -0,0 +1,192 @@
+package ftree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * TopK
+ * Keeps the k greatest elements of a stream in O(k) memory
+ * The elements go into a buffer of 2k and when it's full a quickselect keeps the k greatest and drops the rest,
+ * so every element costs O(1) amortized (a heap would cost O(log k)); after the first time the buffer is full,
+ * an element that is not greater than the k-th greatest seen so far is dropped without being stored
+ * OfLong and OfDouble do the same with unboxed longs and doubles
+ * @param <T> type of the elements
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class TopK<T>
+{
+    private final int k;
+    private final Comparator<? super T> c;
+    private final T[] buffer;
+    private int size;
+    private T threshold; // k-th greatest element after the last compaction (null before the first one)
+
+    /**
+     * Constructor for the TopK
+     * @param k number of elements to keep (minimum 1)
+     * @param c comparator that gives the order of the elements (Comparator.naturalOrder() for the greatest,
+     *          Comparator.reverseOrder() for the smallest)
+     */
+    @SuppressWarnings("unchecked")
+    public TopK(int k, Comparator<? super T> c)
+    {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1: " + k);
+        this.k = k;
+        this.c = c;
+        this.buffer = (T[]) new Object[2 * k];
+    }
+
+    /**
+     * Adds an element of the stream
+     * @param x element (not null)
+     */
+    public void offer(T x)
+    {
+        if (threshold != null && c.compare(x, threshold) <= 0) return;
+        buffer[size++] = x;
+        if (size == buffer.length) compact();
+    }
+
+    /**
+     * Returns the k greatest elements seen so far (or all of them if there were fewer), the greatest first
+     * @return list of the greatest elements
+     */
+    public List<T> top()
+    {
+        if (size > k) compact();
+        T[] top = Arrays.copyOf(buffer, size);
+        QuickSort.sort(top, c.reversed());
+        return new ArrayList<>(Arrays.asList(top));
+    }
+
+        /**
+         * Keeps only the k greatest elements of the buffer, at its start
+         */
+        private void compact()
+        {
+            QuickSort.select(buffer, 0, size - 1, size - k, c); // buffer[size-k..size-1] are the k greatest
+            System.arraycopy(buffer, size - k, buffer, 0, k);
+            Arrays.fill(buffer, k, size, null);
+            size = k;
+            threshold = buffer[0]; // The smallest of the k greatest
+        }
+
+    /**
+     * TopK of unboxed longs (the k greatest)
+     */
+    public static class OfLong
+    {
+        private final int k;
+        private final long[] buffer;
+        private int size;
+        private boolean full; // threshold is valid after the first compaction
+        private long threshold;
+
+        /**
+         * Constructor for the TopK of longs
+         * @param k number of longs to keep (minimum 1)
+         */
+        public OfLong(int k)
+        {
+            if (k < 1) throw new IllegalArgumentException("k must be at least 1: " + k);
+            this.k = k;
+            this.buffer = new long[2 * k];
+        }
+
+        /**
+         * Adds a long of the stream
+         * @param x the long
+         */
+        public void offer(long x)
+        {
+            if (full && x <= threshold) return;
+            buffer[size++] = x;
+            if (size == buffer.length) compact();
+        }
+
+        /**
+         * Returns the k greatest longs seen so far (or all of them if there were fewer), the greatest first
+         * @return array of the greatest longs
+         */
+        public long[] top()
+        {
+            if (size > k) compact();
+            long[] top = Arrays.copyOf(buffer, size);
+            QuickSort.sort(top);
+            for (int i = 0, j = top.length - 1; i < j; i++, j--){
+                long t = top[i]; top[i] = top[j]; top[j] = t;
+            }
+            return top;
+        }
+
+            private void compact()
+            {
+                QuickSort.select(buffer, 0, size - 1, size - k);
+                System.arraycopy(buffer, size - k, buffer, 0, k);
+                size = k;
+                full = true;
+                threshold = buffer[0];
+            }
+    }
+
+    /**
+     * TopK of unboxed doubles (the k greatest, the NaNs are ignored)
+     */
+    public static class OfDouble
+    {
+        private final int k;
+        private final double[] buffer;
+        private int size;
+        private boolean full;
+        private double threshold;
+
+        /**
+         * Constructor for the TopK of doubles
+         * @param k number of doubles to keep (minimum 1)
+         */
+        public OfDouble(int k)
+        {
+            if (k < 1) throw new IllegalArgumentException("k must be at least 1: " + k);
+            this.k = k;
+            this.buffer = new double[2 * k];
+        }
+
+        /**
+         * Adds a double of the stream (NaN is ignored)
+         * @param x the double
+         */
+        public void offer(double x)
+        {
+            if (Double.isNaN(x) || (full && x <= threshold)) return;
+            buffer[size++] = x;
+            if (size == buffer.length) compact();
+        }
+
+        /**
+         * Returns the k greatest doubles seen so far (or all of them if there were fewer), the greatest first
+         * @return array of the greatest doubles
+         */
+        public double[] top()
+        {
+            if (size > k) compact();
+            double[] top = Arrays.copyOf(buffer, size);
+            QuickSort.sort(top);
+            for (int i = 0, j = top.length - 1; i < j; i++, j--){
+                double t = top[i]; top[i] = top[j]; top[j] = t;
+            }
+            return top;
+        }
+
+            private void compact()
+            {
+                QuickSort.select(buffer, 0, size - 1, size - k);
+                System.arraycopy(buffer, size - k, buffer, 0, k);
+                size = k;
+                full = true;
+                threshold = buffer[0];
+            }
+    }
+}
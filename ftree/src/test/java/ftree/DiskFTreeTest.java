@@ -0,0 +1,140 @@
+package ftree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * DiskFTreeTest
+ * Tests of the DiskFTree
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class DiskFTreeTest
+{
+    private static final int KEYS = 10_000;
+    private static final int READERS = 6;
+    private static final int PUTS = 200;
+
+    /**
+     * Puts must keep going while many threads read cached pages in a loop (a stream of readers can't starve them)
+     */
+    @Test(timeout = 30_000)
+    public void putsFinishWhileReadersLoop() throws Exception
+    {
+        Path file = Files.createTempFile("diskftree", ".db");
+        Files.delete(file);
+        try (DiskFTree<Integer, Integer> tree = new DiskFTree<>(file, 16, Codec.INT, Codec.INT)){
+            for (int k = 0; k < KEYS; k++) tree.put(k, k);
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicBoolean failed = new AtomicBoolean();
+            CountDownLatch started = new CountDownLatch(READERS);
+            Thread[] readers = new Thread[READERS];
+            for (int t = 0; t < READERS; t++){
+                readers[t] = new Thread(() -> {
+                    started.countDown();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()){
+                        int k = random.nextInt(KEYS);
+                        if (tree.get(k) == null) failed.set(true);
+                    }
+                });
+                readers[t].setDaemon(true);
+                readers[t].start();
+            }
+            started.await();
+
+            try {
+                for (int i = 0; i < PUTS; i++) tree.put(KEYS + i, i);
+            } finally {
+                stop.set(true);
+                for (Thread reader : readers) reader.join();
+            }
+            assertFalse(failed.get());
+            assertEquals(KEYS + PUTS, tree.size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * rank, select and size(min, max) use the ranks stored in the pages, they must stay exact through splits,
+     * evictions (a cache of 64 pages) and reopening the file
+     */
+    @Test
+    public void ranksMatchATreeMap() throws Exception
+    {
+        for (int degree : new int[] { 2, 3, 16 }){
+            Path file = Files.createTempFile("diskftree", ".db");
+            Files.delete(file);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            Random random = new Random(degree);
+            try {
+                for (int session = 0; session < 3; session++){
+                    try (DiskFTree<Integer, Integer> tree = new DiskFTree<>(file, degree, Codec.INT, Codec.INT, 0)){
+                        for (int i = 0; i < 3_000; i++){
+                            int k = random.nextInt(10_000);
+                            tree.put(k, i);
+                            expected.put(k, i);
+                        }
+                        assertEquals(expected.size(), tree.size());
+                        List<Integer> keys = new ArrayList<>(expected.keySet());
+                        for (int i = 0; i < keys.size(); i++) assertEquals(keys.get(i), tree.select(i));
+                        assertNull(tree.select(keys.size()));
+                        for (int q = 0; q < 2_000; q++){
+                            int min = random.nextInt(10_200) - 100;
+                            int max = min + random.nextInt(2_000);
+                            assertEquals(expected.headMap(min).size(), tree.rank(min));
+                            assertEquals(expected.subMap(min, true, max, true).size(), tree.size(min, max));
+                        }
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * A file whose pages were written over after the last flush can't be trusted, opening it must fail
+     * (a crash is simulated by dropping the DiskFTree without closing it)
+     */
+    @Test
+    public void refusesAFileChangedAfterTheLastFlush() throws Exception
+    {
+        Path file = Files.createTempFile("diskftree", ".db");
+        Files.delete(file);
+        try {
+            DiskFTree<Integer, Integer> crashed = new DiskFTree<>(file, 2, Codec.INT, Codec.INT, 0);
+            for (int k = 0; k < 100; k++) crashed.put(k, k);
+            crashed.flush();
+            for (int k = 100; k < 10_000; k++) crashed.put(k, k); // More pages than the cache holds, some are written back
+            try {
+                new DiskFTree<>(file, 2, Codec.INT, Codec.INT).close();
+                fail("Opened a file changed after its last flush");
+            } catch (IOException e){
+                // Expected
+            }
+            crashed.close(); // The flush clears the mark
+            try (DiskFTree<Integer, Integer> tree = new DiskFTree<>(file, 2, Codec.INT, Codec.INT)){
+                assertEquals(10_000, tree.size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
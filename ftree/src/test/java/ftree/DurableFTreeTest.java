@@ -0,0 +1,222 @@
+package ftree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * DurableFTreeTest
+ * Tests of the recovery of the DurableFTree from its log and checkpoint files
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class DurableFTreeTest
+{
+    private static final int RECORD = 1 + 4 + 4 + 4; // Type, key, value and checksum with Codec.INT
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Everything put before close is there after reopening
+     */
+    @Test
+    public void replaysTheLogAfterClose() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(1);
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            for (int i = 0; i < 2_000; i++){
+                int k = random.nextInt(500);
+                tree.put(k, i);
+                expected.put(k, i);
+            }
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+        }
+    }
+
+    /**
+     * Deletes are replayed too, and deleting a missing key changes nothing
+     */
+    @Test
+    public void replaysDeletes() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            for (int k = 0; k < 200; k++){
+                tree.put(k, -k);
+                expected.put(k, -k);
+            }
+            for (int k = 0; k < 200; k += 2){
+                tree.delete(k);
+                expected.remove(k);
+            }
+            tree.delete(1_000);
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+            for (int k = 1; k < 200; k += 2) tree.delete(k);
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertEquals(0, tree.size());
+            assertNull(tree.get(1));
+        }
+    }
+
+    /**
+     * A record cut in the middle by a crash is dropped and the log is cut before it
+     */
+    @Test
+    public void cutsATornRecord() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = putKeys(dir, 100);
+        Path log = dir.resolve("log.0");
+        Files.write(log, new byte[] { 1, 0, 0, 0, 7 }, StandardOpenOption.APPEND);
+
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+            assertEquals(100 * RECORD, Files.size(log));
+            tree.put(100, 100);
+            expected.put(100, 100);
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+        }
+    }
+
+    /**
+     * A record with a wrong checksum is where the log ends, the records after it are dropped
+     */
+    @Test
+    public void cutsAtABadChecksum() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = putKeys(dir, 100);
+        Path log = dir.resolve("log.0");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[98 * RECORD + 6] ^= 1; // The value of key 98
+        Files.write(log, bytes);
+        expected.remove(98);
+        expected.remove(99);
+
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+            assertEquals(98 * RECORD, Files.size(log));
+        }
+    }
+
+    /**
+     * The checkpoints (background and explicit) plus the logs after them give back the same FTree
+     */
+    @Test
+    public void reopensAfterCheckpoints() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(2);
+        try (DurableFTree<Integer, Integer> tree = open(dir, 64)){
+            for (int i = 0; i < 5_000; i++){
+                int k = random.nextInt(1_000);
+                if (random.nextInt(4) == 0){
+                    tree.delete(k);
+                    expected.remove(k);
+                } else {
+                    tree.put(k, i);
+                    expected.put(k, i);
+                }
+            }
+        }
+        assertTrue(Files.exists(dir.resolve("checkpoint")));
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+            tree.checkpoint();
+            tree.put(-1, -1);
+            expected.put(-1, -1);
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+        }
+    }
+
+    /**
+     * A crash after the checkpoint was renamed but before the old logs were deleted (or while a new checkpoint.tmp
+     * was being written) leaves stale files that recovery must not use
+     */
+    @Test
+    public void ignoresTheFilesOfAnUnfinishedCheckpoint() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        byte[] oldLog;
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            for (int k = 0; k < 100; k++){
+                tree.put(k, k);
+                expected.put(k, k);
+            }
+            oldLog = Files.readAllBytes(dir.resolve("log.0"));
+            tree.checkpoint();
+            assertFalse(Files.exists(dir.resolve("log.0")));
+            for (int k = 0; k < 50; k++){
+                tree.delete(k);
+                expected.remove(k);
+            }
+        }
+        Files.write(dir.resolve("log.0"), oldLog); // Already in the checkpoint
+        Files.write(dir.resolve("checkpoint.tmp"), new byte[] { 1, 2, 3 });
+
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+            assertFalse(Files.exists(dir.resolve("log.0")));
+            tree.checkpoint(); // Writes over the stale checkpoint.tmp
+        }
+        try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+            assertContents(expected, tree);
+        }
+    }
+
+        private static DurableFTree<Integer, Integer> open(Path dir, int checkpointEvery) throws IOException {
+            return new DurableFTree<>(dir, 4, Codec.INT, Codec.INT, 1, checkpointEvery);
+        }
+
+        /**
+         * Puts the keys 0 to n - 1 (with the key as value) in a new DurableFTree and closes it, so they are all in log.0
+         */
+        private static Map<Integer, Integer> putKeys(Path dir, int n) throws IOException {
+            Map<Integer, Integer> expected = new TreeMap<>();
+            try (DurableFTree<Integer, Integer> tree = open(dir, Integer.MAX_VALUE)){
+                for (int k = 0; k < n; k++){
+                    tree.put(k, k);
+                    expected.put(k, k);
+                }
+            }
+            assertEquals(n * RECORD, Files.size(dir.resolve("log.0")));
+            return expected;
+        }
+
+        private static void assertContents(Map<Integer, Integer> expected, DurableFTree<Integer, Integer> tree){
+            assertEquals(expected.size(), tree.size());
+            for (Map.Entry<Integer, Integer> e : expected.entrySet()) assertEquals(e.getValue(), tree.get(e.getKey()));
+            List<Integer> keys = new ArrayList<>();
+            for (Integer k : tree.snapshot().keys()) keys.add(k);
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+        }
+}
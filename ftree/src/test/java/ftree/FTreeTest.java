@@ -0,0 +1,228 @@
+package ftree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+/**
+ * FTreeTest
+ * Tests of the FTree against a TreeMap with the same keys
+ * @author Daniel Pantyukhov && Valentim Khakhitva
+ * @version 1.0 [public]
+ */
+public class FTreeTest
+{
+    private static final int[] DEGREES = { 2, 3, 16 };
+
+    /**
+     * Random puts and deletes keep the size, the height and rank/select right after every change
+     */
+    @Test
+    public void deleteKeepsSizeHeightAndRanks()
+    {
+        for (int degree : DEGREES){
+            FTree<Integer, Integer> tree = new FTree<>(degree);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            Random random = new Random(degree);
+            for (int i = 0; i < 4_000; i++){
+                int k = random.nextInt(1_000);
+                if (random.nextInt(3) == 0){
+                    tree.delete(k);
+                    expected.remove(k);
+                } else {
+                    tree.put(k, i);
+                    expected.put(k, i);
+                }
+                if (i % 97 == 0) assertMatches(expected, tree, degree);
+            }
+            assertMatches(expected, tree, degree);
+
+            // Deleting everything (and a missing key on the way) leaves an empty FTree of height 0
+            tree.delete(-1);
+            for (Integer k : new ArrayList<>(expected.keySet())){
+                tree.delete(k);
+                expected.remove(k);
+                assertEquals(expected.size(), tree.size());
+            }
+            assertMatches(expected, tree, degree);
+            assertEquals(0, tree.height());
+        }
+    }
+
+    /**
+     * deleteMin and deleteMax take the ends of the FTree until it's empty
+     */
+    @Test
+    public void deleteMinAndMaxKeepSizeHeightAndRanks()
+    {
+        for (int degree : DEGREES){
+            FTree<Integer, Integer> tree = new FTree<>(degree);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            Random random = new Random(degree);
+            for (int i = 0; i < 2_000; i++){
+                int k = random.nextInt(10_000);
+                tree.put(k, k);
+                expected.put(k, k);
+            }
+            int step = 0;
+            while (!expected.isEmpty()){
+                if (step++ % 2 == 0){
+                    assertEquals(expected.firstKey(), tree.min());
+                    tree.deleteMin();
+                    expected.pollFirstEntry();
+                } else {
+                    assertEquals(expected.lastKey(), tree.max());
+                    tree.deleteMax();
+                    expected.pollLastEntry();
+                }
+                if (step % 61 == 0) assertMatches(expected, tree, degree);
+            }
+            assertMatches(expected, tree, degree);
+            tree.deleteMin(); // Nothing to delete
+            tree.deleteMax();
+            assertEquals(0, tree.size());
+            assertEquals(0, tree.height());
+        }
+    }
+
+    /**
+     * A snapshot keeps the keys, values, size, height and ranks it was taken with while the FTree gets
+     * put, delete, deleteMin/deleteMax and putAll, and snapshots taken at different times don't see each other
+     */
+    @Test
+    public void snapshotDoesNotChange()
+    {
+        for (int degree : DEGREES){
+            FTree<Integer, Integer> tree = new FTree<>(degree);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            Random random = new Random(degree);
+            for (int i = 0; i < 1_000; i++){
+                int k = random.nextInt(2_000);
+                tree.put(k, i);
+                expected.put(k, i);
+            }
+            List<FTree<Integer, Integer>> snapshots = new ArrayList<>();
+            List<TreeMap<Integer, Integer>> contents = new ArrayList<>();
+            List<Integer> heights = new ArrayList<>();
+
+            for (int round = 0; round < 4; round++){
+                FTree<Integer, Integer> snapshot = tree.snapshot();
+                snapshots.add(snapshot);
+                contents.add(new TreeMap<>(expected));
+                heights.add(snapshot.height());
+
+                for (int i = 0; i < 500; i++){
+                    int k = random.nextInt(2_000);
+                    if (random.nextBoolean()){
+                        tree.put(k, -i);
+                        expected.put(k, -i);
+                    } else {
+                        tree.delete(k);
+                        expected.remove(k);
+                    }
+                }
+                tree.deleteMin();
+                expected.pollFirstEntry();
+                tree.deleteMax();
+                expected.pollLastEntry();
+                Integer[] batch = new Integer[300];
+                for (int i = 0; i < batch.length; i++){
+                    batch[i] = random.nextInt(4_000);
+                    expected.put(batch[i], batch[i]);
+                }
+                tree.putAll(batch, batch);
+
+                assertMatches(expected, tree, degree);
+                for (int s = 0; s < snapshots.size(); s++){
+                    assertMatches(contents.get(s), snapshots.get(s), degree);
+                    assertEquals((int) heights.get(s), snapshots.get(s).height());
+                }
+            }
+
+            FTree<Integer, Integer> snapshot = snapshots.get(0);
+            try {
+                snapshot.put(1, 1);
+                fail("put on a snapshot");
+            } catch (UnsupportedOperationException e){
+                // Expected
+            }
+            try {
+                snapshot.delete(contents.get(0).firstKey());
+                fail("delete on a snapshot");
+            } catch (UnsupportedOperationException e){
+                // Expected
+            }
+            assertMatches(contents.get(0), snapshot, degree);
+        }
+    }
+
+        /**
+         * Checks the FTree has the keys and values of the map, its size (also of ranges), rank and select of every key,
+         * and a height between the smallest and the biggest a B-tree of that degree and size can have
+         */
+        private static void assertMatches(TreeMap<Integer, Integer> expected, FTree<Integer, Integer> tree, int degree){
+            int n = expected.size();
+            assertEquals(n, tree.size());
+            int height = tree.height();
+            assertTrue("height " + height + " for " + n + " keys", height <= maxHeight(n, degree));
+            assertTrue("height " + height + " for " + n + " keys", height >= minHeight(n, degree));
+
+            int rank = 0;
+            for (Map.Entry<Integer, Integer> e : expected.entrySet()){
+                Integer k = e.getKey();
+                assertEquals(e.getValue(), tree.get(k));
+                assertEquals(rank, tree.rank(k));
+                assertEquals(k, tree.select(rank));
+                assertEquals(rank, tree.rank(k - 1) + (expected.containsKey(k - 1) ? 1 : 0));
+                rank++;
+            }
+            if (n > 0){
+                Integer low = expected.firstKey(), high = expected.lastKey();
+                int middle = low + (high - low) / 2;
+                assertEquals(expected.subMap(low, true, middle, true).size(), tree.size(low, middle));
+                assertEquals(expected.subMap(middle, true, high, true).size(), tree.size(middle, high));
+                assertEquals(expected.subMap(middle + 1, true, middle + 9, true).size(), tree.size(middle + 1, middle + 9));
+            } else {
+                assertNull(tree.min());
+            }
+            List<Integer> keys = new ArrayList<>();
+            for (Integer k : tree.keys()) keys.add(k);
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+        }
+
+        /**
+         * @return the height of a B-tree with n keys where every node but the root has g-1 keys
+         */
+        private static int maxHeight(int n, int g){
+            int height = 0;
+            long leaves = 2; // Nodes at the deepest level when the root has one key and the rest g-1
+            long keys = 1;
+            while (keys + leaves * (g - 1) <= n){
+                keys += leaves * (g - 1);
+                leaves *= g;
+                height++;
+            }
+            return height;
+        }
+
+        /**
+         * @return the height of a B-tree with n keys where every node is full (2g-1 keys)
+         */
+        private static int minHeight(int n, int g){
+            int height = 0;
+            long capacity = 2 * g - 1;
+            while (capacity < n){
+                capacity = capacity * 2 * g + 2 * g - 1;
+                height++;
+            }
+            return height;
+        }
+}